@@ -0,0 +1,123 @@
+package io.github.glynch.jollama.chat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An image attached to a {@link Message} by reference.
+ *
+ * <p>
+ * Unlike the base64 strings of {@link Message#images()}, the image is only
+ * read when a request is written, and is base64 encoded straight into the
+ * request body. A history holding the message holds the reference, not the
+ * encoded image.
+ * </p>
+ *
+ * <pre>
+ * Message message = Message.user("What is in this picture?", ImageAttachment.of(Path.of("sky.jpg")));
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public interface ImageAttachment {
+
+    /**
+     * Get the size of the image in bytes.
+     *
+     * @return The size of the image.
+     * @throws IOException If the size could not be read.
+     */
+    long size() throws IOException;
+
+    /**
+     * Open the image for reading.
+     *
+     * @return A stream of the bytes of the image.
+     * @throws IOException If the image could not be opened.
+     */
+    InputStream open() throws IOException;
+
+    /**
+     * Attach the image file at the path. The file is read each time a request
+     * containing it is written.
+     *
+     * @param path The path of the image.
+     * @return The attachment.
+     */
+    static ImageAttachment of(Path path) {
+        return new FileImage(path);
+    }
+
+    /**
+     * Attach the image.
+     *
+     * @param image The bytes of the image.
+     * @return The attachment.
+     */
+    static ImageAttachment of(byte[] image) {
+        Objects.requireNonNull(image, "image cannot be null");
+        return new BytesImage(image.clone());
+    }
+
+    /**
+     * An image file.
+     *
+     * @param path The path of the image.
+     */
+    record FileImage(Path path) implements ImageAttachment {
+
+        public FileImage {
+            Objects.requireNonNull(path, "path cannot be null");
+        }
+
+        @Override
+        public long size() throws IOException {
+            return Files.size(path);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+    }
+
+    /**
+     * An image held in memory.
+     */
+    final class BytesImage implements ImageAttachment {
+
+        private final byte[] image;
+
+        private BytesImage(byte[] image) {
+            this.image = image;
+        }
+
+        @Override
+        public long size() {
+            return image.length;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(image);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BytesImage other && Arrays.equals(image, other.image);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(image);
+        }
+
+    }
+
+}
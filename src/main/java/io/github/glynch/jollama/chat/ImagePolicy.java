@@ -0,0 +1,177 @@
+package io.github.glynch.jollama.chat;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.github.glynch.jollama.chat.history.SerializedMessages;
+
+/**
+ * Limits the images sent with a chat request.
+ *
+ * <p>
+ * The images of the messages are counted from the newest message back. Once
+ * they add up to more than {@code maxBytes}, the images of that message and
+ * every older message are left out of the request, the history itself is not
+ * changed. With a placeholder, the content of those messages is followed by
+ * the placeholder for each image left out, so the model knows there was one.
+ * The images of the newest message are always sent.
+ * </p>
+ *
+ * <p>
+ * A message left without its images is the same instance from one request to
+ * the next, so its JSON is cached like any other message.
+ * </p>
+ *
+ * @author Graham Lynch
+ */
+public class ImagePolicy {
+
+    private final long maxBytes;
+    private final String placeholder;
+    private final Map<IdentityKey, Message> stripped = new HashMap<>();
+    private final ReferenceQueue<Message> collected = new ReferenceQueue<>();
+
+    private ImagePolicy(long maxBytes, String placeholder) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * Leave out the images of older messages once the images add up to more
+     * than {@code maxBytes}.
+     *
+     * @param maxBytes The maximum size of the images of a request.
+     * @return The policy.
+     */
+    public static ImagePolicy drop(long maxBytes) {
+        return new ImagePolicy(maxBytes, null);
+    }
+
+    /**
+     * Replace the images of older messages with the placeholder once the
+     * images add up to more than {@code maxBytes}.
+     *
+     * @param maxBytes    The maximum size of the images of a request.
+     * @param placeholder The text added to the content for each image left out.
+     * @return The policy.
+     */
+    public static ImagePolicy replace(long maxBytes, String placeholder) {
+        return new ImagePolicy(maxBytes, Objects.requireNonNull(placeholder, "placeholder cannot be null"));
+    }
+
+    /**
+     * Apply the policy to the messages of a request.
+     *
+     * @param messages The messages.
+     * @return The messages to send, the same list if no image is left out.
+     */
+    public List<Message> apply(List<Message> messages) {
+        int keep = messages.size();
+        long total = 0;
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            long size = imageBytes(messages.get(i));
+            if (size == 0) {
+                continue;
+            }
+            total += size;
+            if (total > maxBytes && i < messages.size() - 1) {
+                keep = i + 1;
+                break;
+            }
+            keep = i;
+        }
+        if (keep == messages.size() || !hasImages(messages, keep)) {
+            return messages;
+        }
+        List<Message> applied = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            applied.add(i < keep && imageCount(message) > 0 ? strip(message) : message);
+        }
+        return messages instanceof SerializedMessages serialized ? serialized.with(applied) : applied;
+    }
+
+    private static boolean hasImages(List<Message> messages, int end) {
+        for (int i = 0; i < end; i++) {
+            if (imageCount(messages.get(i)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Message strip(Message message) {
+        for (Reference<? extends Message> key; (key = collected.poll()) != null;) {
+            stripped.remove(key);
+        }
+        Message cached = stripped.get(new IdentityKey(message, null));
+        if (cached == null) {
+            String content = message.content();
+            if (placeholder != null) {
+                content = (content != null ? content : "") + placeholder.repeat(imageCount(message));
+            }
+            cached = new Message(message.role(), content, List.of(), List.of());
+            stripped.put(new IdentityKey(message, collected), cached);
+        }
+        return cached;
+    }
+
+    private static int imageCount(Message message) {
+        return message.images().size() + message.attachments().size();
+    }
+
+    private static long imageBytes(Message message) {
+        long bytes = 0;
+        for (String image : message.images()) {
+            bytes += image.length() / 4 * 3;
+        }
+        for (ImageAttachment attachment : message.attachments()) {
+            try {
+                bytes += attachment.size();
+            } catch (IOException e) {
+                // the request fails when the image is written, count it as empty until then
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * A weak key compared by identity, so looking a message up does not hash
+     * its images.
+     */
+    private static final class IdentityKey extends WeakReference<Message> {
+
+        private final int hash;
+
+        IdentityKey(Message message, ReferenceQueue<Message> queue) {
+            super(message, queue);
+            this.hash = System.identityHashCode(message);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            Message message = get();
+            return message != null && obj instanceof IdentityKey other && message == other.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
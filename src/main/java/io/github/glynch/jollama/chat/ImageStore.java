@@ -0,0 +1,239 @@
+package io.github.glynch.jollama.chat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import io.github.glynch.jollama.support.DigestUtils;
+
+/**
+ * A content-addressed store of images, keyed by their sha256 digest.
+ *
+ * <p>
+ * Adding an image returns an {@link ImageAttachment} that only holds the
+ * digest, so messages and histories refer to the image instead of holding it.
+ * An image attached to many messages, or added many times, is stored once.
+ * </p>
+ *
+ * <p>
+ * Images are held on the heap. An unbounded store keeps every image until it
+ * is removed, or dropped by {@link #retain(Collection)}. A store with a
+ * {@code maxBytes} evicts the least recently added or sent images once it
+ * holds more, and a message still referring to an evicted image fails to be
+ * sent.
+ * </p>
+ *
+ * <pre>
+ * ImageAttachment sky = client.images().add(Path.of("sky.jpg"));
+ * client.chat("llava", Message.user("What is in this picture?", sky)).history(history).batch();
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public class ImageStore {
+
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+
+    /**
+     * Create a store that keeps every image until it is removed.
+     */
+    public ImageStore() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a store that evicts the least recently used images once they
+     * take more than {@code maxBytes}. The newest image is always kept.
+     *
+     * @param maxBytes The maximum size of the images in bytes.
+     */
+    public ImageStore(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add an image.
+     *
+     * @param image The bytes of the image.
+     * @return The attachment of the image.
+     */
+    public StoredImage add(byte[] image) {
+        Objects.requireNonNull(image, "image cannot be null");
+        String digest = DigestUtils.sha256hex(image);
+        synchronized (this) {
+            if (images.get(digest) == null) {
+                images.put(digest, image.clone());
+                bytes += image.length;
+                evict();
+            }
+        }
+        return new StoredImage(this, digest);
+    }
+
+    private void evict() {
+        Iterator<byte[]> eldest = images.values().iterator();
+        while (bytes > maxBytes && images.size() > 1) {
+            bytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Add the image file at the path.
+     *
+     * @param path The path of the image.
+     * @return The attachment of the image.
+     * @throws UncheckedIOException If the file could not be read.
+     */
+    public StoredImage add(Path path) {
+        Objects.requireNonNull(path, "path cannot be null");
+        try {
+            return add(Files.readAllBytes(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add a base64 encoded image.
+     *
+     * @param image The base64 encoded image.
+     * @return The attachment of the image.
+     */
+    public StoredImage add(String image) {
+        Objects.requireNonNull(image, "image cannot be null");
+        return add(Base64.getDecoder().decode(image));
+    }
+
+    /**
+     * Whether the store holds the image.
+     *
+     * @param digest The digest of the image.
+     * @return {@code true} if the image is stored.
+     */
+    public synchronized boolean contains(String digest) {
+        return images.containsKey(digest);
+    }
+
+    /**
+     * Remove an image. Messages that still refer to it fail to be sent.
+     *
+     * @param digest The digest of the image.
+     */
+    public synchronized void remove(String digest) {
+        byte[] image = images.remove(digest);
+        if (image != null) {
+            bytes -= image.length;
+        }
+    }
+
+    /**
+     * Remove every image that is not in the digests, for example those no
+     * longer referred to by any live history.
+     *
+     * @param digests The digests of the images to keep.
+     */
+    public synchronized void retain(Collection<String> digests) {
+        Set<String> keep = Set.copyOf(digests);
+        Iterator<Map.Entry<String, byte[]>> iterator = images.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> image = iterator.next();
+            if (!keep.contains(image.getKey())) {
+                bytes -= image.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the number of images in the store.
+     *
+     * @return The number of images.
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * Get the total size of the images in the store.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private synchronized byte[] get(String digest) throws IOException {
+        byte[] image = images.get(digest);
+        if (image == null) {
+            throw new IOException("Image " + digest + " is not in the store");
+        }
+        return image;
+    }
+
+    /**
+     * An image of an {@link ImageStore}. Two stored images are equal when
+     * their digests are.
+     */
+    public static final class StoredImage implements ImageAttachment {
+
+        private final ImageStore store;
+        private final String digest;
+
+        private StoredImage(ImageStore store, String digest) {
+            this.store = store;
+            this.digest = digest;
+        }
+
+        /**
+         * Get the sha256 digest of the image.
+         *
+         * @return The digest, prefixed with {@code sha256:}.
+         */
+        public String digest() {
+            return digest;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return store.get(digest).length;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return new ByteArrayInputStream(store.get(digest));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StoredImage other && digest.equals(other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return digest.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "StoredImage[" + digest + "]";
+        }
+
+    }
+
+}
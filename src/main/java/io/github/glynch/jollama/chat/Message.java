@@ -3,18 +3,39 @@ package io.github.glynch.jollama.chat;
 import java.util.Collections;
 import java.util.List;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 /**
  * Chat message.
  * 
- * @param role    The {@link Role role} of the message.
- * @param content The content of the message.
- * @param images  The images of the message. Base64 encoded. Requires multimodel
- *                model
+ * @param role        The {@link Role role} of the message.
+ * @param content     The content of the message.
+ * @param images      The images of the message. Base64 encoded. Requires
+ *                    multimodel model
+ * @param attachments The images of the message that are encoded when a request
+ *                    is written. Sent after {@code images}.
  * 
  * @author Graham Lynch
  * 
  */
-public record Message(Role role, String content, List<String> images) {
+@JsonSerialize(using = MessageSerializer.class)
+public record Message(Role role, String content, List<String> images, List<ImageAttachment> attachments) {
+
+    public Message {
+        images = images == null ? List.of() : images;
+        attachments = attachments == null ? List.of() : List.copyOf(attachments);
+    }
+
+    /**
+     * Create a message without attachments.
+     * 
+     * @param role    The {@link Role role} of the message.
+     * @param content The content of the message.
+     * @param images  The images of the message. Base64 encoded.
+     */
+    public Message(Role role, String content, List<String> images) {
+        this(role, content, images, List.of());
+    }
 
     /**
      * Create a user message.
@@ -48,6 +69,18 @@ public record Message(Role role, String content, List<String> images) {
         return user(content, List.of(images));
     }
 
+    /**
+     * Create a user message with images that are read and encoded when a
+     * request is written.
+     * 
+     * @param content     The content of the message.
+     * @param attachments The images of the message.
+     * @return The message.
+     */
+    public static Message user(String content, ImageAttachment... attachments) {
+        return new Message(Role.USER, content, List.of(), List.of(attachments));
+    }
+
     /**
      * Create a system message.
      * 
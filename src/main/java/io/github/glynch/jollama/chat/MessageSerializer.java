@@ -0,0 +1,54 @@
+package io.github.glynch.jollama.chat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a {@link Message} with its {@link ImageAttachment attachments}
+ * base64 encoded into the {@code images} array, after the images that are
+ * already encoded. Empty fields are left out.
+ */
+class MessageSerializer extends StdSerializer<Message> {
+
+    MessageSerializer() {
+        super(Message.class);
+    }
+
+    @Override
+    public void serialize(Message message, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(message);
+        if (message.role() != null) {
+            gen.writeFieldName("role");
+            provider.defaultSerializeValue(message.role(), gen);
+        }
+        if (message.content() != null && !message.content().isEmpty()) {
+            gen.writeStringField("content", message.content());
+        }
+        boolean hasImages = !message.images().isEmpty();
+        if (hasImages || !message.attachments().isEmpty()) {
+            gen.writeArrayFieldStart("images");
+            if (hasImages) {
+                for (String image : message.images()) {
+                    gen.writeString(image);
+                }
+            }
+            for (ImageAttachment attachment : message.attachments()) {
+                long size = attachment.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Image of " + size + " bytes is too large to attach");
+                }
+                try (InputStream inputStream = attachment.open()) {
+                    gen.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, inputStream, (int) size);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.github.glynch.jollama.chat.history;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.github.glynch.jollama.chat.Message;
+
+/**
+ * A {@link MessageHistory} that can be shared between threads.
+ *
+ * <p>
+ * The messages are kept in an array that is never modified once published.
+ * Every change copies the array and publishes the copy with a compare and set,
+ * so writers never block each other or readers. {@link #messages()} wraps the
+ * current array without copying it, and the list it returns is a consistent
+ * snapshot that later changes do not affect.
+ * </p>
+ *
+ * @author Graham Lynch
+ */
+public class ConcurrentMessageHistory implements MessageHistory {
+
+    private static final Message[] EMPTY = new Message[0];
+
+    private final AtomicReference<Message[]> messages = new AtomicReference<>(EMPTY);
+    private final SerializedMessages.Cache serializedMessages = new SerializedMessages.Cache();
+
+    public ConcurrentMessageHistory() {
+    }
+
+    public ConcurrentMessageHistory(MessageHistory history) {
+        add(history);
+    }
+
+    public ConcurrentMessageHistory(List<Message> messages) {
+        add(messages);
+    }
+
+    @Override
+    public void add(MessageHistory history) {
+        Objects.requireNonNull(history, "history cannot be null");
+        add(history.messages());
+    }
+
+    @Override
+    public void add(List<Message> messages) {
+        Objects.requireNonNull(messages, "messages cannot be null");
+        Message[] added = messages.toArray(EMPTY);
+        if (added.length == 0) {
+            return;
+        }
+        Message[] current;
+        Message[] next;
+        do {
+            current = this.messages.get();
+            next = Arrays.copyOf(current, current.length + added.length);
+            System.arraycopy(added, 0, next, current.length, added.length);
+        } while (!this.messages.compareAndSet(current, next));
+    }
+
+    @Override
+    public void add(Message message) {
+        Objects.requireNonNull(message, "message cannot be null");
+        Message[] current;
+        Message[] next;
+        do {
+            current = messages.get();
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = message;
+        } while (!messages.compareAndSet(current, next));
+    }
+
+    @Override
+    public Message get(int index) {
+        Message[] current = messages.get();
+        Objects.checkIndex(index, current.length);
+        return current[index];
+    }
+
+    @Override
+    public Message remove(int index) throws IndexOutOfBoundsException {
+        Message[] current;
+        Message[] next;
+        do {
+            current = messages.get();
+            Objects.checkIndex(index, current.length);
+            next = new Message[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+        } while (!messages.compareAndSet(current, next));
+        return current[index];
+    }
+
+    @Override
+    public List<Message> messages() {
+        return Collections.unmodifiableList(Arrays.asList(messages.get()));
+    }
+
+    @Override
+    public List<Message> serialized() {
+        return serializedMessages.serialize(messages());
+    }
+
+    @Override
+    public void clear() {
+        messages.set(EMPTY);
+    }
+
+    @Override
+    public int size() {
+        return messages.get().length;
+    }
+
+    @Override
+    public Iterator<Message> iterator() {
+        return messages().iterator();
+    }
+
+}
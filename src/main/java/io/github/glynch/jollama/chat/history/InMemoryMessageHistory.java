@@ -10,6 +10,7 @@ import io.github.glynch.jollama.chat.Message;
 public class InMemoryMessageHistory implements MessageHistory {
 
     List<Message> messages = new ArrayList<>();
+    private final SerializedMessages.Cache serializedMessages = new SerializedMessages.Cache();
 
     public InMemoryMessageHistory() {
     }
@@ -37,6 +38,11 @@ public class InMemoryMessageHistory implements MessageHistory {
         this.messages.addAll(messages);
     }
 
+    @Override
+    public List<Message> serialized() {
+        return serializedMessages.serialize(messages());
+    }
+
     @Override
     public void clear() {
         this.messages.clear();
@@ -31,6 +31,16 @@ public interface MessageHistory extends Iterable<Message> {
         return new InMemoryMessageHistory();
     }
 
+    /**
+     * Create a history that can be shared between threads.
+     * 
+     * @return The history.
+     * @see ConcurrentMessageHistory
+     */
+    static MessageHistory concurrent() {
+        return new ConcurrentMessageHistory();
+    }
+
     /**
      * Add a {@link MessageHistory} to this history.
      * 
@@ -70,6 +80,21 @@ public interface MessageHistory extends Iterable<Message> {
      */
     List<Message> messages();
 
+    /**
+     * Get a snapshot of the messages in the history to send in a request.
+     * 
+     * <p>
+     * Histories that keep a {@link SerializedMessages.Cache} return
+     * {@link SerializedMessages}, so only the messages added since the last
+     * request are serialized again.
+     * </p>
+     * 
+     * @return The messages in the history.
+     */
+    default List<Message> serialized() {
+        return List.copyOf(messages());
+    }
+
     /**
      * Clear the history.
      */
@@ -0,0 +1,607 @@
+package io.github.glynch.jollama.chat.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.chat.Message;
+
+/**
+ * Stores the histories of many chat sessions on disk.
+ *
+ * <p>
+ * Sessions are spread over {@code shards} append-only log files. Every change
+ * to a history is appended to the log of its shard, and only the offsets of
+ * the records of each session are kept on heap. The messages of the
+ * {@code hotSessions} most recently used sessions are cached, other sessions
+ * are read back from the log when they are next used.
+ * </p>
+ *
+ * <p>
+ * Clearing a history or removing a message leaves dead records in the log. A
+ * shard is rewritten with only the live messages once more than half of its
+ * records are dead, by {@link #compact()} or in the background every
+ * {@code compactionInterval}.
+ * </p>
+ *
+ * <pre>
+ * try (PersistentMessageHistoryStore store = PersistentMessageHistoryStore.builder(Path.of("sessions")).build()) {
+ *     MessageHistory history = store.history(sessionId);
+ *     client.chat("llama3", "Why is the sky blue?").history(history).batch();
+ * }
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public class PersistentMessageHistoryStore implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final byte APPEND = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+
+    private final Shard[] shards;
+    private final ScheduledExecutorService scheduler;
+
+    private PersistentMessageHistoryStore(Builder builder) throws IOException {
+        Files.createDirectories(builder.directory);
+        int hotPerShard = Math.max(1, builder.hotSessions / builder.shards);
+        this.shards = new Shard[builder.shards];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(builder.directory.resolve("shard-" + i + ".log"), hotPerShard);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeShards();
+            throw e;
+        }
+        if (builder.compactionInterval != null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jollama-history-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = builder.compactionInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Create a builder of a store.
+     *
+     * @param directory The directory of the log files.
+     * @return The builder.
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Get the history of a session. The history is created when a message is
+     * first added to it.
+     *
+     * @param sessionId The id of the session.
+     * @return The history.
+     * @throws IllegalArgumentException If the id is longer than 32767 bytes
+     *                                  in UTF-8.
+     */
+    public MessageHistory history(String sessionId) {
+        Objects.requireNonNull(sessionId, "sessionId cannot be null");
+        if (sessionId.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("sessionId cannot be longer than " + Short.MAX_VALUE + " bytes");
+        }
+        return new PersistentMessageHistory(shard(sessionId), sessionId);
+    }
+
+    /**
+     * Delete the history of a session.
+     *
+     * @param sessionId The id of the session.
+     */
+    public void delete(String sessionId) {
+        Objects.requireNonNull(sessionId, "sessionId cannot be null");
+        shard(sessionId).clear(sessionId);
+    }
+
+    /**
+     * Get the number of sessions with at least one message.
+     *
+     * @return The number of sessions.
+     */
+    public int sessions() {
+        int sessions = 0;
+        for (Shard shard : shards) {
+            sessions += shard.sessions();
+        }
+        return sessions;
+    }
+
+    /**
+     * Get the number of sessions whose messages are cached on heap.
+     *
+     * @return The number of sessions.
+     */
+    public int hotSessions() {
+        int hot = 0;
+        for (Shard shard : shards) {
+            hot += shard.hotSessions();
+        }
+        return hot;
+    }
+
+    /**
+     * Rewrite the shards where more than half of the records are dead.
+     *
+     * @throws IOException If a shard could not be rewritten.
+     */
+    public void compact() throws IOException {
+        for (Shard shard : shards) {
+            shard.compactIfNeeded();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // the shard is left as it was and compaction is retried at the next interval
+        }
+    }
+
+    private Shard shard(String sessionId) {
+        return shards[Math.floorMod(sessionId.hashCode(), shards.length)];
+    }
+
+    /**
+     * Stop compacting and flush the logs to disk.
+     *
+     * @throws IOException If a log could not be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        closeShards();
+    }
+
+    private void closeShards() throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            if (shard == null) {
+                continue;
+            }
+            try {
+                shard.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The offsets of the records of a session in the log of its shard.
+     */
+    private static final class Offsets {
+
+        private long[] offsets = new long[4];
+        private int size;
+        private int removes;
+
+        void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+    }
+
+    /**
+     * One log file, the offsets of the sessions in it, and the messages of its
+     * hot sessions.
+     */
+    private static final class Shard {
+
+        private final Path path;
+        private Map<String, Offsets> index = new HashMap<>();
+        private final LinkedHashMap<String, List<Message>> hot;
+        private FileChannel channel;
+        private long records;
+        private long dead;
+
+        Shard(Path path, int hotSessions) throws IOException {
+            this.path = path;
+            this.hot = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<Message>> eldest) {
+                    return size() > hotSessions;
+                }
+            };
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            scan();
+        }
+
+        /**
+         * Rebuild the index from the log, dropping a record cut short by a
+         * crash.
+         */
+        private void scan() throws IOException {
+            long position = 0;
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (position + 4 <= size) {
+                channel.read(header.clear(), position);
+                int length = header.getInt(0);
+                if (length < 3 || position + 4 + length > size) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length);
+                read(record, position + 4);
+                record.flip();
+                byte op = record.get();
+                short idLength = record.getShort();
+                if (idLength < 0 || idLength > record.remaining()) {
+                    // corrupt, dropped like a torn record
+                    break;
+                }
+                byte[] id = new byte[idLength];
+                record.get(id);
+                index(new String(id, StandardCharsets.UTF_8), op, position);
+                position += 4 + length;
+            }
+            channel.truncate(position);
+            channel.position(position);
+        }
+
+        private void index(String sessionId, byte op, long offset) {
+            records++;
+            if (op == CLEAR) {
+                // a remove and the append it removed are already counted
+                Offsets offsets = index.remove(sessionId);
+                dead += 1 + (offsets != null ? offsets.size - 2 * offsets.removes : 0);
+                return;
+            }
+            Offsets offsets = index.computeIfAbsent(sessionId, key -> new Offsets());
+            if (op == REMOVE) {
+                dead += 2;
+                offsets.removes++;
+            }
+            offsets.add(offset);
+        }
+
+        private void read(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + path);
+                }
+            }
+        }
+
+        private void append(String sessionId, byte op, byte[] payload) {
+            try {
+                index(sessionId, op, write(channel, sessionId, op, payload));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Write a record at the end of the channel.
+         *
+         * @return The offset of the record.
+         */
+        private static long write(FileChannel channel, String sessionId, byte op, byte[] payload)
+                throws IOException {
+            byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+            int length = 1 + 2 + id.length + payload.length;
+            ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+            buffer.putInt(length).put(op).putShort((short) id.length).put(id).put(payload).flip();
+            long offset = channel.position();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return offset;
+        }
+
+        /**
+         * The messages of the session, read back from the log and made hot if
+         * it is not hot.
+         */
+        private List<Message> load(String sessionId) {
+            List<Message> messages = hot.get(sessionId);
+            if (messages == null) {
+                messages = read(sessionId);
+                // an unknown session is not made hot, so it cannot push out a real one
+                if (index.containsKey(sessionId)) {
+                    hot.put(sessionId, messages);
+                }
+            }
+            return messages;
+        }
+
+        private List<Message> read(String sessionId) {
+            List<Message> messages = new ArrayList<>();
+            Offsets offsets = index.get(sessionId);
+            if (offsets != null) {
+                try {
+                    ByteBuffer header = ByteBuffer.allocate(4);
+                    for (int i = 0; i < offsets.size; i++) {
+                        long offset = offsets.offsets[i];
+                        header.clear();
+                        read(header, offset);
+                        ByteBuffer record = ByteBuffer.allocate(header.getInt(0));
+                        read(record, offset + 4);
+                        record.flip();
+                        byte op = record.get();
+                        record.position(record.position() + 2 + record.getShort(1));
+                        byte[] payload = new byte[record.remaining()];
+                        record.get(payload);
+                        if (op == APPEND) {
+                            messages.add(objectMapper.readValue(payload, Message.class));
+                        } else if (op == REMOVE) {
+                            messages.remove(ByteBuffer.wrap(payload).getInt());
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return messages;
+        }
+
+        synchronized void add(String sessionId, List<Message> messages) {
+            List<Message> loaded = load(sessionId);
+            for (Message message : messages) {
+                try {
+                    append(sessionId, APPEND, objectMapper.writeValueAsBytes(message));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                loaded.add(message);
+            }
+            if (!messages.isEmpty()) {
+                hot.putIfAbsent(sessionId, loaded);
+            }
+        }
+
+        synchronized Message remove(String sessionId, int index) {
+            List<Message> loaded = load(sessionId);
+            Objects.checkIndex(index, loaded.size());
+            append(sessionId, REMOVE, ByteBuffer.allocate(4).putInt(index).array());
+            return loaded.remove(index);
+        }
+
+        synchronized void clear(String sessionId) {
+            hot.remove(sessionId);
+            if (index.containsKey(sessionId)) {
+                append(sessionId, CLEAR, new byte[0]);
+            }
+        }
+
+        synchronized List<Message> messages(String sessionId) {
+            return List.copyOf(load(sessionId));
+        }
+
+        synchronized int sessions() {
+            return index.size();
+        }
+
+        synchronized int hotSessions() {
+            return hot.size();
+        }
+
+        /**
+         * Rewrite the log with an append record per live message once more
+         * than half of the records are dead. Sessions are rewritten one at a
+         * time, and the new index only replaces the current one once the new
+         * log has replaced the old one, so a failed compaction leaves the
+         * shard as it was.
+         */
+        synchronized void compactIfNeeded() throws IOException {
+            if (dead * 2 <= records) {
+                return;
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".compact");
+            Map<String, Offsets> compactedIndex = new HashMap<>();
+            long compactedRecords = 0;
+            channel.force(false);
+            try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (String sessionId : index.keySet()) {
+                    List<Message> messages = hot.containsKey(sessionId) ? hot.get(sessionId) : read(sessionId);
+                    for (Message message : messages) {
+                        long offset = write(compacted, sessionId, APPEND, objectMapper.writeValueAsBytes(message));
+                        compactedIndex.computeIfAbsent(sessionId, key -> new Offsets()).add(offset);
+                        compactedRecords++;
+                    }
+                }
+                compacted.force(false);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            channel.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                index = compactedIndex;
+                records = compactedRecords;
+                dead = 0;
+            } finally {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        }
+
+        synchronized void close() throws IOException {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+    }
+
+    /**
+     * A {@link MessageHistory} of one session of a store.
+     */
+    private static final class PersistentMessageHistory implements MessageHistory {
+
+        private final Shard shard;
+        private final String sessionId;
+
+        PersistentMessageHistory(Shard shard, String sessionId) {
+            this.shard = shard;
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void add(MessageHistory history) {
+            Objects.requireNonNull(history, "history cannot be null");
+            shard.add(sessionId, history.messages());
+        }
+
+        @Override
+        public void add(List<Message> messages) {
+            Objects.requireNonNull(messages, "messages cannot be null");
+            shard.add(sessionId, messages);
+        }
+
+        @Override
+        public void add(Message message) {
+            Objects.requireNonNull(message, "message cannot be null");
+            shard.add(sessionId, List.of(message));
+        }
+
+        @Override
+        public Message get(int index) {
+            return shard.messages(sessionId).get(index);
+        }
+
+        @Override
+        public Message remove(int index) throws IndexOutOfBoundsException {
+            return shard.remove(sessionId, index);
+        }
+
+        @Override
+        public List<Message> messages() {
+            return shard.messages(sessionId);
+        }
+
+        @Override
+        public void clear() {
+            shard.clear(sessionId);
+        }
+
+        @Override
+        public int size() {
+            return shard.messages(sessionId).size();
+        }
+
+        @Override
+        public Iterator<Message> iterator() {
+            return messages().iterator();
+        }
+
+    }
+
+    /**
+     * A builder of a {@link PersistentMessageHistoryStore}.
+     */
+    public static final class Builder {
+
+        private final Path directory;
+        private int shards = 16;
+        private int hotSessions = 1024;
+        private Duration compactionInterval = Duration.ofMinutes(5);
+
+        private Builder(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+        }
+
+        /**
+         * Set the number of log files. Defaults to {@code 16}.
+         *
+         * @param shards The number of log files.
+         * @return The builder.
+         */
+        public Builder shards(int shards) {
+            if (shards < 1) {
+                throw new IllegalArgumentException("shards must be at least 1");
+            }
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Set the number of sessions whose messages are cached on heap.
+         * Defaults to {@code 1024}.
+         *
+         * @param hotSessions The number of sessions.
+         * @return The builder.
+         */
+        public Builder hotSessions(int hotSessions) {
+            if (hotSessions < 1) {
+                throw new IllegalArgumentException("hotSessions must be at least 1");
+            }
+            this.hotSessions = hotSessions;
+            return this;
+        }
+
+        /**
+         * Set the interval at which logs are compacted in the background, or
+         * {@code null} to only compact on {@link #compact()}. Defaults to five
+         * minutes.
+         *
+         * @param compactionInterval The interval.
+         * @return The builder.
+         */
+        public Builder compactionInterval(Duration compactionInterval) {
+            if (compactionInterval != null && (compactionInterval.isZero() || compactionInterval.isNegative())) {
+                throw new IllegalArgumentException("compactionInterval must be positive");
+            }
+            this.compactionInterval = compactionInterval;
+            return this;
+        }
+
+        /**
+         * Build the store, reading the index of every log.
+         *
+         * @return The store.
+         * @throws IOException If a log could not be opened.
+         */
+        public PersistentMessageHistoryStore build() throws IOException {
+            return new PersistentMessageHistoryStore(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package io.github.glynch.jollama.chat.history;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import io.github.glynch.jollama.chat.Message;
+
+/**
+ * A snapshot of the messages of a history together with their JSON.
+ *
+ * <p>
+ * Messages are immutable, so the JSON of a message is encoded the first time
+ * it is sent and reused by every later request of the history. Serializing a
+ * chat request then only encodes the messages added since the last one, the
+ * rest of the history is copied into the request as is. Messages with
+ * {@link io.github.glynch.jollama.chat.ImageAttachment attachments} are not
+ * cached, their images are encoded into each request.
+ * </p>
+ *
+ * @author Graham Lynch
+ */
+@JsonSerialize(using = SerializedMessages.Serializer.class)
+public final class SerializedMessages extends AbstractList<Message> implements RandomAccess {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+
+    private final List<Message> messages;
+    private final SerializableString[] json;
+
+    private SerializedMessages(List<Message> messages, SerializableString[] json) {
+        this.messages = messages;
+        this.json = json;
+    }
+
+    @Override
+    public Message get(int index) {
+        return messages.get(index);
+    }
+
+    @Override
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * Get the messages with some of them replaced, keeping the cached JSON of
+     * those that are not.
+     * 
+     * @param messages The messages, as many as in this snapshot.
+     * @return The snapshot of the messages.
+     */
+    public SerializedMessages with(List<Message> messages) {
+        if (messages.size() != this.messages.size()) {
+            throw new IllegalArgumentException("messages must have " + this.messages.size() + " messages");
+        }
+        SerializableString[] encoded = new SerializableString[json.length];
+        for (int i = 0; i < encoded.length; i++) {
+            if (messages.get(i) == this.messages.get(i)) {
+                encoded[i] = json[i];
+            }
+        }
+        return new SerializedMessages(List.copyOf(messages), encoded);
+    }
+
+    SerializableString json(int index) {
+        return json[index];
+    }
+
+    /**
+     * Caches the JSON of the messages of one history.
+     */
+    static final class Cache {
+
+        private volatile Map<Message, SerializableString> json = new IdentityHashMap<>();
+
+        /**
+         * Serialize the messages, reusing the JSON of the messages that were
+         * serialized last time. Only the JSON of the given messages is kept, so
+         * the cache never outgrows the history.
+         */
+        SerializedMessages serialize(List<Message> messages) {
+            Map<Message, SerializableString> cached = json;
+            Map<Message, SerializableString> next = new IdentityHashMap<>(messages.size());
+            SerializableString[] encoded = new SerializableString[messages.size()];
+            for (int i = 0; i < encoded.length; i++) {
+                Message message = messages.get(i);
+                if (!message.attachments().isEmpty()) {
+                    // attachments are encoded into the request as it is written
+                    continue;
+                }
+                SerializableString value = cached.get(message);
+                if (value == null) {
+                    value = encode(message);
+                }
+                encoded[i] = value;
+                next.put(message, value);
+            }
+            json = next;
+            return new SerializedMessages(List.copyOf(messages), encoded);
+        }
+
+        private static SerializableString encode(Message message) {
+            try {
+                return new SerializedString(objectMapper.writeValueAsString(message));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Failed to serialize message", e);
+            }
+        }
+
+    }
+
+    /**
+     * Writes the cached JSON of the messages as raw values, and messages with
+     * attachments as they are. Generators that do
+     * not take raw values, like the token buffers behind
+     * {@code ObjectMapper.valueToTree}, get the messages instead.
+     */
+    static final class Serializer extends StdSerializer<SerializedMessages> {
+
+        Serializer() {
+            super(SerializedMessages.class);
+        }
+
+        @Override
+        public void serialize(SerializedMessages value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            if (gen instanceof TokenBuffer) {
+                gen.writeStartArray(value, value.size());
+                for (Message message : value.messages) {
+                    provider.defaultSerializeValue(message, gen);
+                }
+                gen.writeEndArray();
+                return;
+            }
+            gen.writeStartArray(value, value.size());
+            for (int i = 0; i < value.json.length; i++) {
+                if (value.json[i] != null) {
+                    gen.writeRawValue(value.json[i]);
+                } else {
+                    provider.defaultSerializeValue(value.messages.get(i), gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, SerializedMessages value) {
+            return value.isEmpty();
+        }
+
+    }
+
+}
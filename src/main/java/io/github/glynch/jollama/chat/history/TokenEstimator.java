@@ -0,0 +1,45 @@
+package io.github.glynch.jollama.chat.history;
+
+import io.github.glynch.jollama.chat.Message;
+
+/**
+ * Estimates the number of tokens a {@link Message} takes up in the context of
+ * a model.
+ * 
+ * <p>
+ * The estimate only has to be close enough to keep a
+ * {@link WindowedMessageHistory} within the context of the model, a tokenizer
+ * for the model can be plugged in where it needs to be exact.
+ * </p>
+ * 
+ * @author Graham Lynch
+ */
+@FunctionalInterface
+public interface TokenEstimator {
+
+    /**
+     * Estimate the number of tokens of the message.
+     * 
+     * @param message The message.
+     * @return The number of tokens.
+     */
+    int estimate(Message message);
+
+    /**
+     * An estimator of one token per four characters of content, plus the
+     * template tokens around each message and a fixed cost per image.
+     * 
+     * @return The estimator.
+     */
+    static TokenEstimator characters() {
+        return message -> {
+            int tokens = 4;
+            if (message.content() != null) {
+                tokens += (message.content().length() + 3) / 4;
+            }
+            tokens += 576 * (message.images().size() + message.attachments().size());
+            return tokens;
+        };
+    }
+
+}
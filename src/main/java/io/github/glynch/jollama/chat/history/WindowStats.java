@@ -0,0 +1,27 @@
+package io.github.glynch.jollama.chat.history;
+
+/**
+ * How much of a {@link WindowedMessageHistory} is kept and how much has been
+ * trimmed from it.
+ * 
+ * @param messages            The number of messages in the window, including
+ *                            the system message.
+ * @param tokens              The estimated number of tokens in the window.
+ * @param trimmedMessages     The number of messages trimmed since the history
+ *                            was created.
+ * @param trimmedTokens       The estimated number of tokens trimmed since the
+ *                            history was created.
+ * @param lastTrimmedMessages The number of messages trimmed by the last add.
+ * @param lastTrimmedTokens   The estimated number of tokens trimmed by the
+ *                            last add.
+ * 
+ * @author Graham Lynch
+ */
+public record WindowStats(
+        int messages,
+        long tokens,
+        long trimmedMessages,
+        long trimmedTokens,
+        int lastTrimmedMessages,
+        long lastTrimmedTokens) {
+}
@@ -0,0 +1,257 @@
+package io.github.glynch.jollama.chat.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import io.github.glynch.jollama.chat.Message;
+import io.github.glynch.jollama.chat.Role;
+
+/**
+ * A {@link MessageHistory} that only keeps the most recent turns of a
+ * conversation.
+ *
+ * <p>
+ * The system message is pinned at the start of the history, adding another
+ * system message replaces it. Once the history has more than
+ * {@code maxMessages} messages, or more than {@code maxTokens} tokens as
+ * estimated by the {@link TokenEstimator}, the oldest turns are trimmed until
+ * it fits again. A turn is trimmed whole, so the history never starts with
+ * the reply to a trimmed question. The latest message is always kept, even
+ * when it does not fit on its own.
+ * </p>
+ *
+ * <pre>
+ * MessageHistory history = WindowedMessageHistory.builder()
+ *         .maxTokens(6000)
+ *         .build();
+ * client.chat("llama3", "Why is the sky blue?").history(history).batch();
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public class WindowedMessageHistory implements MessageHistory {
+
+    private final int maxMessages;
+    private final long maxTokens;
+    private final TokenEstimator estimator;
+    private final List<Message> messages = new ArrayList<>();
+    private final List<Integer> tokens = new ArrayList<>();
+    private final SerializedMessages.Cache serializedMessages = new SerializedMessages.Cache();
+    private Message system;
+    private int systemTokens;
+    private long windowTokens;
+    private long trimmedMessages;
+    private long trimmedTokens;
+    private int lastTrimmedMessages;
+    private long lastTrimmedTokens;
+
+    private WindowedMessageHistory(Builder builder) {
+        this.maxMessages = builder.maxMessages;
+        this.maxTokens = builder.maxTokens;
+        this.estimator = builder.estimator;
+    }
+
+    /**
+     * Create a builder of a windowed history.
+     *
+     * @return The builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public synchronized void add(MessageHistory history) {
+        Objects.requireNonNull(history, "history cannot be null");
+        add(history.messages());
+    }
+
+    @Override
+    public synchronized void add(List<Message> messages) {
+        Objects.requireNonNull(messages, "messages cannot be null");
+        for (Message message : messages) {
+            append(message);
+        }
+        trim();
+    }
+
+    @Override
+    public synchronized void add(Message message) {
+        append(message);
+        trim();
+    }
+
+    private void append(Message message) {
+        Objects.requireNonNull(message, "message cannot be null");
+        int estimate = estimator.estimate(message);
+        if (message.role() == Role.SYSTEM) {
+            system = message;
+            systemTokens = estimate;
+        } else {
+            messages.add(message);
+            tokens.add(estimate);
+            windowTokens += estimate;
+        }
+    }
+
+    private void trim() {
+        int trimmed = 0;
+        long trimmedEstimate = 0;
+        while (messages.size() > 1 && (size() > maxMessages || systemTokens + windowTokens > maxTokens)) {
+            do {
+                int estimate = tokens.remove(0);
+                messages.remove(0);
+                windowTokens -= estimate;
+                trimmed++;
+                trimmedEstimate += estimate;
+            } while (messages.size() > 1 && messages.get(0).role() != Role.USER);
+        }
+        lastTrimmedMessages = trimmed;
+        lastTrimmedTokens = trimmedEstimate;
+        trimmedMessages += trimmed;
+        trimmedTokens += trimmedEstimate;
+    }
+
+    @Override
+    public synchronized Message get(int index) {
+        return messages().get(index);
+    }
+
+    @Override
+    public synchronized Message remove(int index) throws IndexOutOfBoundsException {
+        Objects.checkIndex(index, size());
+        if (system != null) {
+            if (index == 0) {
+                Message removed = system;
+                system = null;
+                systemTokens = 0;
+                return removed;
+            }
+            index--;
+        }
+        windowTokens -= tokens.remove(index);
+        return messages.remove(index);
+    }
+
+    @Override
+    public synchronized List<Message> messages() {
+        List<Message> window = new ArrayList<>(size());
+        if (system != null) {
+            window.add(system);
+        }
+        window.addAll(messages);
+        return Collections.unmodifiableList(window);
+    }
+
+    @Override
+    public synchronized List<Message> serialized() {
+        return serializedMessages.serialize(messages());
+    }
+
+    @Override
+    public synchronized void clear() {
+        messages.clear();
+        tokens.clear();
+        system = null;
+        systemTokens = 0;
+        windowTokens = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return messages.size() + (system != null ? 1 : 0);
+    }
+
+    /**
+     * Get the estimated number of tokens in the history.
+     *
+     * @return The number of tokens.
+     */
+    public synchronized long tokens() {
+        return systemTokens + windowTokens;
+    }
+
+    /**
+     * Get how much of the history is kept and how much has been trimmed.
+     *
+     * @return The stats.
+     */
+    public synchronized WindowStats stats() {
+        return new WindowStats(size(), tokens(), trimmedMessages, trimmedTokens, lastTrimmedMessages,
+                lastTrimmedTokens);
+    }
+
+    @Override
+    public Iterator<Message> iterator() {
+        return messages().iterator();
+    }
+
+    /**
+     * A builder of a {@link WindowedMessageHistory}.
+     */
+    public static final class Builder {
+
+        private int maxMessages = Integer.MAX_VALUE;
+        private long maxTokens = Long.MAX_VALUE;
+        private TokenEstimator estimator = TokenEstimator.characters();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of messages, including the system message.
+         * Unbounded by default.
+         *
+         * @param maxMessages The maximum number of messages.
+         * @return The builder.
+         */
+        public Builder maxMessages(int maxMessages) {
+            if (maxMessages < 1) {
+                throw new IllegalArgumentException("maxMessages must be at least 1");
+            }
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of tokens, including the system message.
+         * Unbounded by default.
+         *
+         * @param maxTokens The maximum number of tokens.
+         * @return The builder.
+         */
+        public Builder maxTokens(long maxTokens) {
+            if (maxTokens < 1) {
+                throw new IllegalArgumentException("maxTokens must be at least 1");
+            }
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Set how the tokens of a message are estimated. Defaults to
+         * {@link TokenEstimator#characters()}.
+         *
+         * @param estimator The estimator.
+         * @return The builder.
+         */
+        public Builder tokenEstimator(TokenEstimator estimator) {
+            this.estimator = Objects.requireNonNull(estimator, "estimator cannot be null");
+            return this;
+        }
+
+        /**
+         * Build the history.
+         *
+         * @return The history.
+         */
+        public WindowedMessageHistory build() {
+            return new WindowedMessageHistory(this);
+        }
+
+    }
+
+}
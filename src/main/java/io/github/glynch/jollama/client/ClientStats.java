@@ -0,0 +1,33 @@
+package io.github.glynch.jollama.client;
+
+/**
+ * A point in time view of the connection pool and dispatcher of a
+ * {@link JOllamaClient}.
+ * 
+ * <p>
+ * Compare {@code runningCalls} and {@code queuedCalls} with the
+ * {@code OLLAMA_NUM_PARALLEL} setting of the server to size
+ * {@link JOllamaClient.Builder#maxRequestsPerHost(int)}.
+ * </p>
+ * 
+ * @param connections        The number of open connections in the pool.
+ * @param idleConnections    The number of idle connections in the pool.
+ * @param runningCalls       The number of blocking, streaming and
+ *                           asynchronous calls currently executing.
+ * @param queuedCalls        The number of asynchronous calls waiting for the
+ *                           dispatcher.
+ * @param maxRequests        The maximum number of concurrent asynchronous
+ *                           calls.
+ * @param maxRequestsPerHost The maximum number of concurrent asynchronous
+ *                           calls to a single host.
+ * 
+ * @author Graham Lynch
+ */
+public record ClientStats(
+        int connections,
+        int idleConnections,
+        int runningCalls,
+        int queuedCalls,
+        int maxRequests,
+        int maxRequestsPerHost) {
+}
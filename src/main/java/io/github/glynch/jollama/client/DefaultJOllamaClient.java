@@ -5,9 +5,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import io.github.glynch.jollama.Format;
 import io.github.glynch.jollama.KeepAlive;
@@ -15,17 +23,23 @@ import io.github.glynch.jollama.Model;
 import io.github.glynch.jollama.Options;
 import io.github.glynch.jollama.chat.ChatRequest;
 import io.github.glynch.jollama.chat.ChatResponse;
+import io.github.glynch.jollama.chat.ImagePolicy;
+import io.github.glynch.jollama.chat.ImageStore;
 import io.github.glynch.jollama.chat.Message;
 import io.github.glynch.jollama.chat.history.InMemoryMessageHistory;
 import io.github.glynch.jollama.chat.history.MessageHistory;
-import io.github.glynch.jollama.client.api.DefaultJOllamaApi;
 import io.github.glynch.jollama.client.api.JOllamaApi;
 import io.github.glynch.jollama.copy.CopyRequest;
 import io.github.glynch.jollama.create.CreateRequest;
 import io.github.glynch.jollama.create.CreateResponse;
 import io.github.glynch.jollama.delete.DeleteRequest;
+import io.github.glynch.jollama.embeddings.EmbedRequest;
+import io.github.glynch.jollama.embeddings.EmbedResponse;
+import io.github.glynch.jollama.embeddings.Embedding;
 import io.github.glynch.jollama.embeddings.EmbeddingsRequest;
 import io.github.glynch.jollama.embeddings.EmbeddingsResponse;
+import io.github.glynch.jollama.embeddings.Vector;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache;
 import io.github.glynch.jollama.generate.GenerateRequest;
 import io.github.glynch.jollama.generate.GenerateResponse;
 import io.github.glynch.jollama.list.ListModel;
@@ -38,10 +52,12 @@ import io.github.glynch.jollama.pull.PullRequest;
 import io.github.glynch.jollama.pull.PullResponse;
 import io.github.glynch.jollama.show.ShowRequest;
 import io.github.glynch.jollama.show.ShowResponse;
+import io.github.glynch.jollama.support.DigestCache;
 import io.github.glynch.jollama.support.DigestUtils;
-import okhttp3.OkHttpClient;
+import io.github.glynch.jollama.version.VersionResponse;
 import okhttp3.Response;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 final class DefaultJOllamaClient implements JOllamaClient {
 
@@ -57,14 +73,67 @@ final class DefaultJOllamaClient implements JOllamaClient {
     private static final String PUSH_PATH = "/api/push";
     private static final String BLOBS_PATH = "/api/blobs";
     private static final String EMBEDDINGS_PATH = "/api/embeddings";
+    private static final String EMBED_PATH = "/api/embed";
+    private static final String VERSION_PATH = "/api/version";
+    private static final int[] EMBED_VERSION = { 0, 3, 0 };
+    private static final int DEFAULT_EMBED_BATCH_SIZE = 64;
+    private static final int DEFAULT_EMBED_CONCURRENCY = 4;
     private static final String PS_PATH = "/api/ps";
+    private static final ExecutorService DIGEST_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "jollama-digest");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final String host;
     private final JOllamaApi api;
+    private final SingleFlight singleFlight;
+    private final EmbeddingsCache embeddingsCache;
+    private final ImageStore imageStore;
+    private final ImagePolicy imagePolicy;
+    private final DigestCache digestCache;
+    private final ExecutorService executor;
+    private volatile Boolean embedSupported;
+
+    DefaultJOllamaClient(JOllamaApi api) {
+        this(api, false, null, null, null, null, null);
+    }
+
+    DefaultJOllamaClient(JOllamaApi api, boolean coalesce, EmbeddingsCache embeddingsCache, ImageStore imageStore,
+            ImagePolicy imagePolicy, DigestCache digestCache, ExecutorService executor) {
+        this.host = api.host();
+        this.api = api;
+        this.singleFlight = coalesce ? new SingleFlight() : null;
+        this.embeddingsCache = embeddingsCache;
+        this.imageStore = imageStore != null ? imageStore : new ImageStore();
+        this.imagePolicy = imagePolicy;
+        this.digestCache = digestCache;
+        this.executor = executor;
+    }
 
-    DefaultJOllamaClient(OkHttpClient client, String host) {
-        this.host = host;
-        this.api = new DefaultJOllamaApi(client, host);
+    private String digest(Path path) {
+        return digestCache != null ? digestCache.sha256hex(path) : DigestUtils.sha256hex(path);
+    }
+
+    private <T> T post(JOllamaApi api, String path, Object request, Class<T> type) {
+        if (singleFlight == null) {
+            return api.post(path, request, type);
+        }
+        return singleFlight.call(SingleFlight.key(path, request), () -> api.post(path, request, type));
+    }
+
+    private <T> CompletableFuture<T> postAsync(JOllamaApi api, String path, Object request, Class<T> type) {
+        if (singleFlight == null) {
+            return api.postAsync(path, request, type);
+        }
+        return singleFlight.callAsync(SingleFlight.key(path, request), () -> api.postAsync(path, request, type));
+    }
+
+    private <T> Flux<T> stream(JOllamaApi api, String path, Object request, Class<T> type) {
+        if (singleFlight == null) {
+            return api.stream(path, request, type);
+        }
+        return singleFlight.stream(SingleFlight.key(path, request), () -> api.stream(path, request, type));
     }
 
     @Override
@@ -94,6 +163,24 @@ final class DefaultJOllamaClient implements JOllamaClient {
         return api.readTimeout();
     }
 
+    @Override
+    public ClientStats stats() {
+        return api.stats();
+    }
+
+    @Override
+    public ImageStore images() {
+        return imageStore;
+    }
+
+    @Override
+    public void close() {
+        api.close();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
     @Override
     public boolean ping() {
         try {
@@ -104,9 +191,62 @@ final class DefaultJOllamaClient implements JOllamaClient {
         }
     }
 
+    @Override
+    public String version() throws JOllamaClientException {
+        return api.get(VERSION_PATH, VersionResponse.class).version();
+    }
+
+    private boolean embedSupported(JOllamaApi api) {
+        Boolean supported = embedSupported;
+        if (supported == null) {
+            try {
+                supported = isAtLeast(api.get(VERSION_PATH, VersionResponse.class).version(), EMBED_VERSION);
+                embedSupported = supported;
+            } catch (JOllamaClientException e) {
+                // probed again next time, a transient failure must not pin the fallback
+                return false;
+            }
+        }
+        return supported;
+    }
+
+    static boolean isAtLeast(String version, int[] minimum) {
+        if (version == null) {
+            return false;
+        }
+        int suffix = version.indexOf('-');
+        String[] parts = (suffix < 0 ? version : version.substring(0, suffix)).split("\\.");
+        try {
+            int[] numbers = new int[minimum.length];
+            for (int i = 0; i < parts.length && i < numbers.length; i++) {
+                numbers[i] = Integer.parseInt(parts[i]);
+            }
+            // development builds report 0.0.0
+            if (Arrays.stream(numbers).allMatch(number -> number == 0)) {
+                return true;
+            }
+            return Arrays.compare(numbers, minimum) >= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> getHosts() {
+        return api.nodes().stream().map(JOllamaApi::host).toList();
+    }
+
     @Override
     public ProcessModels ps() throws JOllamaClientException {
-        return api.get(PS_PATH, ProcessModels.class);
+        List<JOllamaApi> nodes = api.nodes();
+        if (nodes.size() == 1) {
+            return api.get(PS_PATH, ProcessModels.class);
+        }
+        List<ProcessModel> models = new ArrayList<>();
+        for (JOllamaApi node : nodes) {
+            models.addAll(node.get(PS_PATH, ProcessModels.class).models());
+        }
+        return new ProcessModels(models);
     }
 
     @Override
@@ -117,7 +257,15 @@ final class DefaultJOllamaClient implements JOllamaClient {
 
     @Override
     public ListModels list() throws JOllamaClientException {
-        return api.get(LIST_PATH, ListModels.class);
+        List<JOllamaApi> nodes = api.nodes();
+        if (nodes.size() == 1) {
+            return api.get(LIST_PATH, ListModels.class);
+        }
+        Map<String, ListModel> models = new LinkedHashMap<>();
+        for (JOllamaApi node : nodes) {
+            node.get(LIST_PATH, ListModels.class).models().forEach(model -> models.putIfAbsent(model.name(), model));
+        }
+        return new ListModels(new ArrayList<>(models.values()));
     }
 
     @Override
@@ -160,14 +308,15 @@ final class DefaultJOllamaClient implements JOllamaClient {
 
     @Override
     public BlobsSpec blobs() {
-        return new DefaultBlobsSpec(api);
+        // a blob is not bound to a model, so every host gets it
+        return new DefaultBlobsSpec(api.nodes());
     }
 
     @Override
     public ShowResponse show(String name, boolean verbose) throws JOllamaClientException, InvalidModelFileException {
         Objects.requireNonNull(name, "name must not be null");
         ShowRequest showRequest = new ShowRequest(name, verbose);
-        return api.post(SHOW_PATH, showRequest, ShowResponse.class);
+        return api.route(name).post(SHOW_PATH, showRequest, ShowResponse.class);
     }
 
     @Override
@@ -189,7 +338,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
     public GenerateSpec generate(String model, String prompt) {
         Objects.requireNonNull(model, "model must not be null");
         Objects.requireNonNull(prompt, "prompt must not be null");
-        return new DefaultGenerateSpec(api, model, prompt);
+        return new DefaultGenerateSpec(api.route(model), model, prompt);
     }
 
     @Override
@@ -203,7 +352,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
         Objects.requireNonNull(model, "model must not be null");
         Objects.requireNonNull(prompt, "prompt must not be null");
         Message message = Message.user(prompt);
-        return new DefaultChatSpec(api, model, message);
+        return new DefaultChatSpec(api.route(model), model, message);
     }
 
     @Override
@@ -217,7 +366,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
         Objects.requireNonNull(model, "model must not be null");
         Objects.requireNonNull(prompt, "prompt must not be null");
         Message message = Message.user(prompt, images);
-        return new DefaultChatSpec(api, model, message);
+        return new DefaultChatSpec(api.route(model), model, message);
     }
 
     @Override
@@ -231,7 +380,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
         Objects.requireNonNull(model, "model must not be null");
         Objects.requireNonNull(prompt, "prompt must not be null");
         Message message = Message.user(prompt, images);
-        return new DefaultChatSpec(api, model, message);
+        return new DefaultChatSpec(api.route(model), model, message);
     }
 
     @Override
@@ -244,7 +393,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
     public EmbeddingsSpec embeddings(String model, String prompt) {
         Objects.requireNonNull(model, "model must not be null");
         Objects.requireNonNull(prompt, "prompt must not be null");
-        return new DefaultEmbeddingsSpec(api, model, prompt);
+        return new DefaultEmbeddingsSpec(api.route(model), model, prompt);
     }
 
     @Override
@@ -253,10 +402,23 @@ final class DefaultJOllamaClient implements JOllamaClient {
         return embeddings(model.toString(), prompt);
     }
 
+    @Override
+    public BatchEmbeddingsSpec embeddings(String model, List<String> prompts) {
+        Objects.requireNonNull(model, "model must not be null");
+        Objects.requireNonNull(prompts, "prompts must not be null");
+        return new DefaultBatchEmbeddingsSpec(api.route(model), model, List.copyOf(prompts));
+    }
+
+    @Override
+    public BatchEmbeddingsSpec embeddings(Model model, List<String> prompts) {
+        Objects.requireNonNull(model, "model must not be null");
+        return embeddings(model.toString(), prompts);
+    }
+
     @Override
     public PullSpec pull(String name) {
         Objects.requireNonNull(name, "name must not be null");
-        return new DefaultPullSpec(api, name);
+        return new DefaultPullSpec(api.route(name), name);
     }
 
     @Override
@@ -270,7 +432,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
         Objects.requireNonNull(source, "source must not be null");
         Objects.requireNonNull(destination, "destination must not be null");
         CopyRequest copyRequest = new CopyRequest(source, destination);
-        return api.post(COPY_PATH, copyRequest).code();
+        return api.route(source).post(COPY_PATH, copyRequest).code();
     }
 
     @Override
@@ -283,7 +445,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
     public int delete(String name) throws JOllamaClientException {
         Objects.requireNonNull(name, "name must not be null");
         DeleteRequest deleteRequest = new DeleteRequest(name);
-        return api.delete(DELETE_PATH, deleteRequest).code();
+        return api.route(name).delete(DELETE_PATH, deleteRequest).code();
     }
 
     @Override
@@ -394,7 +556,7 @@ final class DefaultJOllamaClient implements JOllamaClient {
                     template,
                     context,
                     true, raw, keepAlive);
-            Flux<GenerateResponse> response = api.stream(GENERATE_PATH, generateRequest,
+            Flux<GenerateResponse> response = DefaultJOllamaClient.this.stream(api, GENERATE_PATH, generateRequest,
                     GenerateResponse.class);
             return response;
         }
@@ -405,7 +567,21 @@ final class DefaultJOllamaClient implements JOllamaClient {
                     template,
                     context,
                     false, raw, keepAlive);
-            return api.post(GENERATE_PATH, generateRequest, GenerateResponse.class);
+            return post(api, GENERATE_PATH, generateRequest, GenerateResponse.class);
+        }
+
+        @Override
+        public CompletableFuture<GenerateResponse> batchAsync() {
+            GenerateRequest generateRequest = new GenerateRequest(model, prompt, images, format, options, system,
+                    template,
+                    context,
+                    false, raw, keepAlive);
+            return postAsync(api, GENERATE_PATH, generateRequest, GenerateResponse.class);
+        }
+
+        @Override
+        public Mono<GenerateResponse> batchMono() {
+            return Mono.fromFuture(this::batchAsync);
         }
 
     }
@@ -441,7 +617,174 @@ final class DefaultJOllamaClient implements JOllamaClient {
         @Override
         public EmbeddingsResponse get() throws JOllamaClientException {
             EmbeddingsRequest request = new EmbeddingsRequest(model, prompt, options, keepAlive);
-            return api.post(EMBEDDINGS_PATH, request, EmbeddingsResponse.class);
+            if (embeddingsCache == null) {
+                return post(api, EMBEDDINGS_PATH, request, EmbeddingsResponse.class);
+            }
+            EmbeddingsCache.Key key = EmbeddingsCache.Key.of(model, prompt, options);
+            float[] cached = embeddingsCache.get(key);
+            if (cached != null) {
+                return response(cached);
+            }
+            EmbeddingsResponse response = post(api, EMBEDDINGS_PATH, request, EmbeddingsResponse.class);
+            embeddingsCache.put(key, floats(response));
+            return response;
+        }
+
+        @Override
+        public CompletableFuture<EmbeddingsResponse> getAsync() {
+            EmbeddingsRequest request = new EmbeddingsRequest(model, prompt, options, keepAlive);
+            if (embeddingsCache == null) {
+                return postAsync(api, EMBEDDINGS_PATH, request, EmbeddingsResponse.class);
+            }
+            EmbeddingsCache.Key key = EmbeddingsCache.Key.of(model, prompt, options);
+            float[] cached = embeddingsCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(response(cached));
+            }
+            CompletableFuture<EmbeddingsResponse> future = postAsync(api, EMBEDDINGS_PATH, request,
+                    EmbeddingsResponse.class);
+            CompletableFuture<EmbeddingsResponse> result = future.thenApply(response -> {
+                embeddingsCache.put(key, floats(response));
+                return response;
+            });
+            result.whenComplete((response, e) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            return result;
+        }
+
+        private static EmbeddingsResponse response(float[] embedding) {
+            return new EmbeddingsResponse(Vector.of(embedding));
+        }
+
+        private static float[] floats(EmbeddingsResponse response) {
+            return response.vector().toArray();
+        }
+
+        @Override
+        public Mono<EmbeddingsResponse> getMono() {
+            return Mono.fromFuture(this::getAsync);
+        }
+
+    }
+
+    private class DefaultBatchEmbeddingsSpec implements BatchEmbeddingsSpec {
+
+        private final JOllamaApi api;
+        private final String model;
+        private final List<String> prompts;
+        private Options options;
+        private String keepAlive;
+        private int batchSize = DEFAULT_EMBED_BATCH_SIZE;
+        private int concurrency = DEFAULT_EMBED_CONCURRENCY;
+
+        public DefaultBatchEmbeddingsSpec(JOllamaApi api, String model, List<String> prompts) {
+            this.api = api;
+            this.model = model;
+            this.prompts = prompts;
+        }
+
+        @Override
+        public BatchEmbeddingsSpec options(Options options) {
+            Objects.requireNonNull(options, "options must not be null");
+            this.options = options;
+            return this;
+        }
+
+        @Override
+        public BatchEmbeddingsSpec keepAlive(String keepAlive) {
+            Objects.requireNonNull(keepAlive, "keepAlive must not be null");
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        @Override
+        public BatchEmbeddingsSpec batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        @Override
+        public BatchEmbeddingsSpec concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        @Override
+        public float[][] get() throws JOllamaClientException {
+            float[][] embeddings = new float[prompts.size()][];
+            stream().doOnNext(embedding -> embeddings[embedding.index()] = embedding.vector().toArray())
+                    .blockLast();
+            return embeddings;
+        }
+
+        @Override
+        public Flux<Embedding> stream() {
+            return Flux.defer(() -> embedSupported(api) ? embed() : pipeline());
+        }
+
+        private Flux<Embedding> pipeline() {
+            return Flux.range(0, prompts.size()).flatMapSequential(index -> {
+                DefaultEmbeddingsSpec spec = new DefaultEmbeddingsSpec(api, model, prompts.get(index));
+                spec.options = options;
+                spec.keepAlive = keepAlive;
+                // /api/embeddings is not normalized, /api/embed is
+                return spec.getMono().map(response -> new Embedding(index, response.vector().normalize()));
+            }, concurrency);
+        }
+
+        private Flux<Embedding> embed() {
+            int batches = (prompts.size() + batchSize - 1) / batchSize;
+            return Flux.range(0, batches).flatMapSequential(batch -> {
+                int from = batch * batchSize;
+                int to = Math.min(prompts.size(), from + batchSize);
+                return Mono.fromFuture(() -> embed(from, to)).flatMapIterable(embeddings -> embeddings);
+            }, concurrency);
+        }
+
+        private CompletableFuture<List<Embedding>> embed(int from, int to) {
+            Embedding[] embeddings = new Embedding[to - from];
+            List<String> input = new ArrayList<>(to - from);
+            List<Integer> indexes = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                float[] cached = embeddingsCache != null
+                        ? embeddingsCache.get(EmbeddingsCache.Key.of(model, prompts.get(i), options, true))
+                        : null;
+                if (cached != null) {
+                    embeddings[i - from] = new Embedding(i, Vector.of(cached));
+                } else {
+                    input.add(prompts.get(i));
+                    indexes.add(i);
+                }
+            }
+            if (input.isEmpty()) {
+                return CompletableFuture.completedFuture(List.of(embeddings));
+            }
+            EmbedRequest request = new EmbedRequest(model, input, options, keepAlive);
+            return postAsync(api, EMBED_PATH, request, EmbedResponse.class).thenApply(response -> {
+                if (response.embeddings() == null || response.embeddings().size() != input.size()) {
+                    throw new JOllamaClientException("Expected " + input.size() + " embeddings but received "
+                            + (response.embeddings() == null ? 0 : response.embeddings().size()));
+                }
+                for (int i = 0; i < input.size(); i++) {
+                    int index = indexes.get(i);
+                    Vector vector = response.embeddings().get(i);
+                    embeddings[index - from] = new Embedding(index, vector);
+                    if (embeddingsCache != null) {
+                        embeddingsCache.put(EmbeddingsCache.Key.of(model, input.get(i), options, true),
+                                vector.toArray());
+                    }
+                }
+                return List.of(embeddings);
+            });
         }
 
     }
@@ -512,21 +855,27 @@ final class DefaultJOllamaClient implements JOllamaClient {
             return this;
         }
 
+        private List<Message> messages() {
+            List<Message> messages = history.serialized();
+            return imagePolicy != null ? imagePolicy.apply(messages) : messages;
+        }
+
         @Override
         public Flux<ChatResponse> stream() throws JOllamaClientException {
-            if (system != null) {
-                history.add(Message.system(system));
-            }
-            history.add(message);
-
-            ChatRequest chatRequest = new ChatRequest(model, history.messages(), format, options, true, keepAlive);
-            StringBuilder content = new StringBuilder();
-            Flux<ChatResponse> flux = api.stream(CHAT_PATH, chatRequest, ChatResponse.class)
-                    .map(r -> {
-                        content.append(r.message().content());
-                        return r;
-                    });
-            return flux.doOnComplete(() -> history.add(Message.assistant(content.toString())));
+            return Flux.defer(() -> {
+                if (system != null) {
+                    history.add(Message.system(system));
+                }
+                history.add(message);
+                ChatRequest chatRequest = new ChatRequest(model, messages(), format, options, true, keepAlive);
+                StringBuilder content = new StringBuilder();
+                Flux<ChatResponse> flux = api.stream(CHAT_PATH, chatRequest, ChatResponse.class)
+                        .map(r -> {
+                            content.append(r.message().content());
+                            return r;
+                        });
+                return flux.doOnComplete(() -> history.add(Message.assistant(content.toString())));
+            });
         }
 
         @Override
@@ -535,12 +884,37 @@ final class DefaultJOllamaClient implements JOllamaClient {
                 history.add(Message.system(system));
             }
             history.add(message);
-            ChatRequest chatRequest = new ChatRequest(model, history.messages(), format, options, false, keepAlive);
+            ChatRequest chatRequest = new ChatRequest(model, messages(), format, options, false, keepAlive);
             ChatResponse response = api.post(CHAT_PATH, chatRequest, ChatResponse.class);
             history.add(response.message());
             return response;
         }
 
+        @Override
+        public CompletableFuture<ChatResponse> batchAsync() {
+            if (system != null) {
+                history.add(Message.system(system));
+            }
+            history.add(message);
+            ChatRequest chatRequest = new ChatRequest(model, messages(), format, options, false, keepAlive);
+            CompletableFuture<ChatResponse> future = api.postAsync(CHAT_PATH, chatRequest, ChatResponse.class);
+            CompletableFuture<ChatResponse> result = future.thenApply(response -> {
+                history.add(response.message());
+                return response;
+            });
+            result.whenComplete((response, e) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public Mono<ChatResponse> batchMono() {
+            return Mono.fromFuture(this::batchAsync);
+        }
+
     }
 
     @Override
@@ -548,14 +922,14 @@ final class DefaultJOllamaClient implements JOllamaClient {
         Objects.requireNonNull(name, "name must not be null");
         Objects.requireNonNull(modelfile, "modelfile must not be null");
 
-        return new DefaultCreateSpec(api, name, modelfile);
+        return new DefaultCreateSpec(api.route(name), name, modelfile);
     }
 
     @Override
     public CreateSpec create(String name, Path path) throws InvalidModelFileException, IOException {
         Objects.requireNonNull(name, "name must not be null");
         Objects.requireNonNull(path, "path must not be null");
-        return new DefaultCreateSpec(api, name, ModelFile.parse(path));
+        return new DefaultCreateSpec(api.route(name), name, ModelFile.parse(path));
     }
 
     private class DefaultCreateSpec implements CreateSpec {
@@ -572,9 +946,11 @@ final class DefaultJOllamaClient implements JOllamaClient {
 
         @Override
         public Flux<CreateResponse> stream() {
-            createBlobs(modelfile);
-            CreateRequest createRequest = new CreateRequest(name, modelfile.toString(), true);
-            return api.stream(CREATE_PATH, createRequest, CreateResponse.class);
+            return Flux.defer(() -> {
+                createBlobs(modelfile);
+                CreateRequest createRequest = new CreateRequest(name, modelfile.toString(), true);
+                return api.stream(CREATE_PATH, createRequest, CreateResponse.class);
+            });
         }
 
         @Override
@@ -584,25 +960,56 @@ final class DefaultJOllamaClient implements JOllamaClient {
             return api.post(CREATE_PATH, createRequest, CreateResponse.class);
         }
 
+        /**
+         * Create the blobs of the local files of the model file. Each file is
+         * hashed once, and the adapter is hashed while the model is checked
+         * and uploaded.
+         */
         private void createBlobs(ModelFile modelFile) {
-            createBlob(modelFile.from());
-            createBlob(modelFile.adapter());
+            Path from = localFile(modelFile.from());
+            Path adapter = localFile(modelFile.adapter());
+            Future<String> adapterDigest = adapter != null ? DIGEST_EXECUTOR.submit(() -> digest(adapter)) : null;
+            try {
+                if (from != null) {
+                    createBlob(from, digest(from));
+                }
+                if (adapter != null) {
+                    createBlob(adapter, await(adapterDigest));
+                }
+            } finally {
+                if (adapterDigest != null) {
+                    // stops reading the adapter when the model could not be created
+                    adapterDigest.cancel(true);
+                }
+            }
+        }
 
+        private String await(Future<String> digest) {
+            try {
+                return digest.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JOllamaClientException("Interrupted while hashing the adapter", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new JOllamaClientException(e.getCause().getMessage(), e.getCause());
+            }
         }
 
-        private void createBlob(String blobPath) {
-            if (blobPath != null) {
-                Path path = Paths.get(blobPath);
-                if (Files.exists(path)) {
-                    String digest = DigestUtils.sha256hex(path);
-                    if (blobs().exists(digest) == 404) {
-                        int status = blobs().create(path);
-                        if (status != 201) {
-                            throw new JOllamaClientException("Failed to create blob: " + blobPath);
-                        }
-                    }
+        private Path localFile(String blobPath) {
+            if (blobPath == null) {
+                return null;
+            }
+            Path path = Paths.get(blobPath);
+            return Files.exists(path) ? path : null;
+        }
 
-                }
+        private void createBlob(Path path, String digest) {
+            int status = new DefaultBlobsSpec(api).create(path, digest);
+            if (status != 200 && status != 201) {
+                throw new JOllamaClientException("Failed to create blob: " + path);
             }
         }
 
@@ -637,14 +1044,29 @@ final class DefaultJOllamaClient implements JOllamaClient {
                     PullResponse.class);
         }
 
+        @Override
+        public CompletableFuture<PullResponse> batchAsync() {
+            return api.postAsync(PULL_PATH, new PullRequest(name, insecure, false),
+                    PullResponse.class);
+        }
+
+        @Override
+        public Mono<PullResponse> batchMono() {
+            return Mono.fromFuture(this::batchAsync);
+        }
+
     }
 
     private class DefaultBlobsSpec implements BlobsSpec {
 
-        private final JOllamaApi api;
+        private final List<JOllamaApi> apis;
 
         public DefaultBlobsSpec(JOllamaApi api) {
-            this.api = api;
+            this(List.of(api));
+        }
+
+        public DefaultBlobsSpec(List<JOllamaApi> apis) {
+            this.apis = apis;
         }
 
         @Override
@@ -653,21 +1075,54 @@ final class DefaultJOllamaClient implements JOllamaClient {
             if (!digest.startsWith(DigestUtils.SHA256_PREFIX)) {
                 throw new IllegalArgumentException("Invalid digest: " + digest);
             }
-            Response response = api.head(BLOBS_PATH + "/" + digest);
-            return response.code();
+            int status = 0;
+            for (JOllamaApi api : apis) {
+                status = exists(api, digest);
+                if (status != 200) {
+                    return status;
+                }
+            }
+            return status;
+        }
+
+        private int exists(JOllamaApi api, String digest) {
+            try (Response response = api.head(BLOBS_PATH + "/" + digest)) {
+                return response.code();
+            }
         }
 
         @Override
         public int create(Path path) throws JOllamaClientException {
             Objects.requireNonNull(path, "path must not be null");
-            String digest = DigestUtils.sha256hex(path);
-            int exists = exists(digest);
-            if (exists == 404) {
-                return api.upload(BLOBS_PATH + "/" + digest, path).code();
-            }
+            return create(path, digest(path));
+        }
 
-            return exists;
+        @Override
+        public int create(Path path, String digest) throws JOllamaClientException {
+            return create(path, digest, UploadProgress.none());
+        }
 
+        @Override
+        public int create(Path path, String digest, UploadProgress progress) throws JOllamaClientException {
+            Objects.requireNonNull(path, "path must not be null");
+            Objects.requireNonNull(progress, "progress must not be null");
+            Objects.requireNonNull(digest, "digest must not be null");
+            if (!digest.startsWith(DigestUtils.SHA256_PREFIX)) {
+                throw new IllegalArgumentException("Invalid digest: " + digest);
+            }
+            int status = 0;
+            for (JOllamaApi api : apis) {
+                status = exists(api, digest);
+                if (status == 404) {
+                    try (Response response = api.upload(BLOBS_PATH + "/" + digest, path, progress)) {
+                        status = response.code();
+                    }
+                }
+                if (status != 200 && status != 201) {
+                    return status;
+                }
+            }
+            return status;
         }
 
     }
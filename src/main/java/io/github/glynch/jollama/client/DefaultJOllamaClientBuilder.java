@@ -1,20 +1,55 @@
 package io.github.glynch.jollama.client;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import io.github.glynch.jollama.chat.ImagePolicy;
+import io.github.glynch.jollama.chat.ImageStore;
 import io.github.glynch.jollama.client.JOllamaClient.Builder;
+import io.github.glynch.jollama.client.api.DefaultJOllamaApi;
+import io.github.glynch.jollama.client.api.JOllamaApi;
+import io.github.glynch.jollama.client.api.LoadBalancedJOllamaApi;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache;
+import io.github.glynch.jollama.support.DigestCache;
+import io.github.glynch.jollama.support.VirtualThreads;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okhttp3.logging.HttpLoggingInterceptor.Level;
+import reactor.core.scheduler.Schedulers;
 
 final class DefaultJOllamaClientBuilder implements JOllamaClient.Builder {
 
     private final OkHttpClient.Builder builder = new OkHttpClient.Builder();
-    private String host;
+    private final List<String> hosts;
+    private int prefetch;
+    private boolean virtualThreads;
+    private Dispatcher dispatcher;
+    private Integer maxRequests;
+    private Integer maxRequestsPerHost;
+
+    private int replicas = 1;
+    private Duration residencyPolling;
+    private boolean coalesce;
+    private EmbeddingsCache embeddingsCache;
+    private ImageStore imageStore;
+    private ImagePolicy imagePolicy;
+    private DigestCache digestCache;
 
     DefaultJOllamaClientBuilder(String host) {
-        this.host = host;
+        this(List.of(host));
+    }
+
+    DefaultJOllamaClientBuilder(List<String> hosts) {
+        Objects.requireNonNull(hosts, "hosts cannot be null");
+        if (hosts.isEmpty()) {
+            throw new IllegalArgumentException("hosts cannot be empty");
+        }
+        this.hosts = List.copyOf(hosts);
     }
 
     @Override
@@ -61,9 +96,146 @@ final class DefaultJOllamaClientBuilder implements JOllamaClient.Builder {
         return this;
     }
 
+    @Override
+    public Builder prefetch(int prefetch) {
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("prefetch cannot be negative");
+        }
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    @Override
+    public Builder virtualThreads() {
+        if (!VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later, running on " + Runtime.version());
+        }
+        this.virtualThreads = true;
+        return this;
+    }
+
+    @Override
+    public Builder connectionPool(int maxIdleConnections, Duration keepAlive) {
+        Objects.requireNonNull(keepAlive, "keepAlive cannot be null");
+        builder.connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS));
+        return this;
+    }
+
+    @Override
+    public Builder maxRequests(int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("maxRequests must be at least 1");
+        }
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    @Override
+    public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+        }
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    @Override
+    public Builder dispatcher(Dispatcher dispatcher) {
+        Objects.requireNonNull(dispatcher, "dispatcher cannot be null");
+        this.dispatcher = dispatcher;
+        return this;
+    }
+
+    @Override
+    public Builder replicas(int replicas) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("replicas must be at least 1");
+        }
+        this.replicas = replicas;
+        return this;
+    }
+
+    @Override
+    public Builder residencyPolling(Duration interval) {
+        Objects.requireNonNull(interval, "interval cannot be null");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.residencyPolling = interval;
+        return this;
+    }
+
+    @Override
+    public Builder coalesce() {
+        this.coalesce = true;
+        return this;
+    }
+
+    @Override
+    public Builder embeddingsCache(EmbeddingsCache embeddingsCache) {
+        Objects.requireNonNull(embeddingsCache, "embeddingsCache cannot be null");
+        this.embeddingsCache = embeddingsCache;
+        return this;
+    }
+
+    @Override
+    public Builder imageStore(ImageStore imageStore) {
+        Objects.requireNonNull(imageStore, "imageStore cannot be null");
+        this.imageStore = imageStore;
+        return this;
+    }
+
+    @Override
+    public Builder imagePolicy(ImagePolicy imagePolicy) {
+        Objects.requireNonNull(imagePolicy, "imagePolicy cannot be null");
+        this.imagePolicy = imagePolicy;
+        return this;
+    }
+
+    @Override
+    public Builder digestCache(DigestCache digestCache) {
+        Objects.requireNonNull(digestCache, "digestCache cannot be null");
+        this.digestCache = digestCache;
+        return this;
+    }
+
+    private Dispatcher dispatcher(ExecutorService executor) {
+        Dispatcher dispatcher = this.dispatcher;
+        if (dispatcher == null) {
+            dispatcher = executor != null ? new Dispatcher(executor) : new Dispatcher();
+        }
+        if (maxRequests != null) {
+            dispatcher.setMaxRequests(maxRequests);
+        }
+        if (maxRequestsPerHost != null) {
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        }
+        return dispatcher;
+    }
+
     @Override
     public JOllamaClient build() {
-        return new DefaultJOllamaClient(builder.build(), host);
+        // each client owns its executor and shuts it down when closed
+        ExecutorService executor = virtualThreads ? VirtualThreads.newVirtualThreadPerTaskExecutor() : null;
+        Dispatcher dispatcher = dispatcher(executor);
+        OkHttpClient client = builder.dispatcher(dispatcher).build();
+        List<JOllamaApi> apis = hosts.stream().map(host -> api(client, host, executor)).toList();
+        if (apis.size() == 1) {
+            return new DefaultJOllamaClient(apis.get(0), coalesce, embeddingsCache, imageStore, imagePolicy,
+                    digestCache, executor);
+        }
+        return new DefaultJOllamaClient(
+                new LoadBalancedJOllamaApi(apis, replicas, dispatcher.getMaxRequestsPerHost(), residencyPolling),
+                coalesce, embeddingsCache, imageStore, imagePolicy, digestCache, executor);
+    }
+
+    private JOllamaApi api(OkHttpClient client, String host, ExecutorService executor) {
+        if (executor == null) {
+            return new DefaultJOllamaApi(client, host, prefetch);
+        }
+        return new DefaultJOllamaApi(client, host, prefetch, executor,
+                Schedulers.fromExecutorService(executor, "jollama-virtual"));
     }
 
 }
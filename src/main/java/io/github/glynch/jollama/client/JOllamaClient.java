@@ -5,16 +5,21 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import io.github.glynch.jollama.Format;
 import io.github.glynch.jollama.KeepAlive;
 import io.github.glynch.jollama.Model;
 import io.github.glynch.jollama.Options;
 import io.github.glynch.jollama.chat.ChatResponse;
+import io.github.glynch.jollama.chat.ImagePolicy;
+import io.github.glynch.jollama.chat.ImageStore;
 import io.github.glynch.jollama.chat.Message;
 import io.github.glynch.jollama.chat.history.MessageHistory;
 import io.github.glynch.jollama.create.CreateResponse;
+import io.github.glynch.jollama.embeddings.Embedding;
 import io.github.glynch.jollama.embeddings.EmbeddingsResponse;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache;
 import io.github.glynch.jollama.generate.GenerateResponse;
 import io.github.glynch.jollama.list.ListModel;
 import io.github.glynch.jollama.list.ListModels;
@@ -24,7 +29,10 @@ import io.github.glynch.jollama.process.ProcessModel;
 import io.github.glynch.jollama.process.ProcessModels;
 import io.github.glynch.jollama.pull.PullResponse;
 import io.github.glynch.jollama.show.ShowResponse;
+import io.github.glynch.jollama.support.DigestCache;
+import okhttp3.Dispatcher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Fluent Client for the Ollama API.
@@ -40,7 +48,7 @@ import reactor.core.publisher.Flux;
  *      API</a>
  * 
  */
-public interface JOllamaClient {
+public interface JOllamaClient extends AutoCloseable {
     /**
      * The default Ollama host.
      */
@@ -68,6 +76,18 @@ public interface JOllamaClient {
         return builder(host).build();
     }
 
+    /**
+     * Create a new {@link JOllamaClient} that routes requests across several
+     * hosts.
+     * 
+     * @param hosts the Ollama server hosts
+     * @return a new {@link JOllamaClient}
+     * @see #builder(List)
+     */
+    static JOllamaClient create(List<String> hosts) {
+        return builder(hosts).build();
+    }
+
     /**
      * Obtain a builder with the default host.
      * 
@@ -87,6 +107,26 @@ public interface JOllamaClient {
         return new DefaultJOllamaClientBuilder(host);
     }
 
+    /**
+     * Obtain a builder for a client that routes requests across several hosts.
+     * 
+     * <p>
+     * Requests for a model are sent to the same {@link Builder#replicas(int)
+     * replicas} of the hosts, chosen by consistent hashing of the model name,
+     * so the model stays loaded there. When all of them have
+     * {@link Builder#maxRequestsPerHost(int) maxRequestsPerHost} requests
+     * outstanding, the host with the fewest outstanding requests is used
+     * instead. {@link #ps()} and {@link #list()} combine the models of all
+     * hosts.
+     * </p>
+     * 
+     * @param hosts the Ollama server hosts
+     * @return a new {@link JOllamaClient.Builder builder}
+     */
+    static Builder builder(List<String> hosts) {
+        return new DefaultJOllamaClientBuilder(hosts);
+    }
+
     /**
      * A mutable builder for creating a {@link JOllamaClient}.
      */
@@ -136,6 +176,167 @@ public interface JOllamaClient {
 
         Builder readTimeout(Duration duration);
 
+        /**
+         * Read streamed responses ahead of demand.
+         * 
+         * <p>
+         * By default a streamed response is only read from the connection when
+         * the subscriber requests more records, so a slow subscriber never
+         * causes records to be buffered in memory. With a prefetch, up to
+         * {@code prefetch} records are read ahead of demand and buffered, and
+         * more are read as the subscriber consumes them, so the buffer never
+         * holds more than {@code prefetch} records. With virtual threads the
+         * records are read ahead on a virtual thread, otherwise on the thread
+         * requesting them.
+         * </p>
+         * 
+         * @param prefetch the maximum number of records to read ahead
+         * @return this builder
+         */
+        Builder prefetch(int prefetch);
+
+        /**
+         * Run the client on virtual threads.
+         * 
+         * <p>
+         * Asynchronous calls are dispatched, streamed responses are read and
+         * responses are decoded on a virtual-thread-per-task executor. Streams
+         * are then no longer read on the subscribing thread.
+         * </p>
+         * 
+         * @return this builder
+         * @throws UnsupportedOperationException if the JVM does not support
+         *                                       virtual threads (Java 21 or
+         *                                       later)
+         * @see io.github.glynch.jollama.support.VirtualThreads
+         */
+        Builder virtualThreads();
+
+        /**
+         * Set the size and keep alive of the connection pool.
+         * 
+         * @param maxIdleConnections the maximum number of idle connections to
+         *                           keep. Defaults to 5
+         * @param keepAlive          how long to keep an idle connection.
+         *                           Defaults to 5 minutes
+         * @return this builder
+         */
+        Builder connectionPool(int maxIdleConnections, Duration keepAlive);
+
+        /**
+         * Set the maximum number of concurrent asynchronous calls, such as
+         * {@link GenerateSpec#batchAsync()}. Defaults to 64.
+         * 
+         * @param maxRequests the maximum number of concurrent calls
+         * @return this builder
+         */
+        Builder maxRequests(int maxRequests);
+
+        /**
+         * Set the maximum number of concurrent asynchronous calls to a single
+         * host. Defaults to 5.
+         * 
+         * @param maxRequestsPerHost the maximum number of concurrent calls per
+         *                           host
+         * @return this builder
+         */
+        Builder maxRequestsPerHost(int maxRequestsPerHost);
+
+        /**
+         * Share a dispatcher between clients, so that their asynchronous calls
+         * are limited together. Limits set with {@link #maxRequests(int)} and
+         * {@link #maxRequestsPerHost(int)} are applied to the shared
+         * dispatcher, and it takes precedence over {@link #virtualThreads()}.
+         * 
+         * @param dispatcher the dispatcher
+         * @return this builder
+         */
+        Builder dispatcher(Dispatcher dispatcher);
+
+        /**
+         * Set the number of hosts each model is routed to when the client has
+         * several hosts. Defaults to 1.
+         * 
+         * @param replicas the number of hosts per model
+         * @return this builder
+         * @see JOllamaClient#builder(List)
+         */
+        Builder replicas(int replicas);
+
+        /**
+         * Poll {@code /api/ps} of each host at the interval when the client has
+         * several hosts, and route each request to a host where its model is
+         * already loaded. A model is only loaded on another host when no host
+         * has it loaded, or every host that has it loaded is saturated.
+         * 
+         * @param interval the polling interval
+         * @return this builder
+         * @see JOllamaClient#builder(List)
+         */
+        Builder residencyPolling(Duration interval);
+
+        /**
+         * Coalesce identical {@code generate} and {@code embeddings} requests
+         * that are in flight at the same time into a single upstream request.
+         * Requests are identical when their model, prompt, options and every
+         * other field serialize to the same JSON, regardless of the order of
+         * the options. A streaming request attaches to the identical stream in
+         * flight and replays what it has received so far.
+         * 
+         * <p>
+         * Only enable this when identical requests are expected to produce
+         * identical responses, e.g. with a fixed {@code seed}. Every caller of
+         * a coalesced request receives the same response.
+         * </p>
+         * 
+         * @return this builder
+         */
+        Builder coalesce();
+
+        /**
+         * Answer {@code embeddings} requests from the cache when the same
+         * model, prompt and options have been embedded before. The cache is
+         * owned by the caller and is not closed with the client.
+         * 
+         * @param embeddingsCache the cache
+         * @return this builder
+         * @see EmbeddingsCache#inMemory(long)
+         * @see EmbeddingsCache#persistent(long, java.nio.file.Path, long)
+         */
+        Builder embeddingsCache(EmbeddingsCache embeddingsCache);
+
+        /**
+         * Use the store for {@link JOllamaClient#images()}, for example to
+         * share it between clients, or to bound it with
+         * {@link ImageStore#ImageStore(long)}. Defaults to a new unbounded
+         * store per client.
+         * 
+         * @param imageStore the store
+         * @return this builder
+         */
+        Builder imageStore(ImageStore imageStore);
+
+        /**
+         * Limit the images sent with each {@code chat} request, leaving out
+         * the images of older messages.
+         * 
+         * @param imagePolicy the policy
+         * @return this builder
+         * @see ImagePolicy#drop(long)
+         * @see ImagePolicy#replace(long, String)
+         */
+        Builder imagePolicy(ImagePolicy imagePolicy);
+
+        /**
+         * Reuse the digests of unchanged files when creating blobs, instead of
+         * reading the files again. The cache is owned by the caller and is not
+         * closed with the client.
+         * 
+         * @param digestCache the cache
+         * @return this builder
+         */
+        Builder digestCache(DigestCache digestCache);
+
         JOllamaClient build();
 
     }
@@ -147,6 +348,15 @@ public interface JOllamaClient {
      */
     String getHost();
 
+    /**
+     * Get the hosts. A client built with several hosts routes requests across
+     * them.
+     * 
+     * @return the hosts
+     * @see #builder(List)
+     */
+    List<String> getHosts();
+
     Redirect getRedirect();
 
     /**
@@ -163,6 +373,37 @@ public interface JOllamaClient {
      */
     int getReadTimeout();
 
+    /**
+     * Get the current connection pool and dispatcher occupancy.
+     * 
+     * @return the {@link ClientStats}
+     */
+    ClientStats stats();
+
+    /**
+     * Get the content-addressed store of images of the client. Images added to
+     * it are attached to messages by digest.
+     * 
+     * <p>
+     * Unless another store is set with {@link Builder#imageStore(ImageStore)},
+     * the store is unbounded and keeps every image on the heap for the life of
+     * the client. Remove images, or {@link ImageStore#retain retain} only those
+     * of the histories still in use, to release them.
+     * </p>
+     * 
+     * @return the {@link ImageStore}
+     */
+    ImageStore images();
+
+    /**
+     * Stop any background work of the client, such as
+     * {@link Builder#residencyPolling(Duration) residency polling}, and shut
+     * down its {@link Builder#virtualThreads() virtual thread} executor. The
+     * underlying connections are shared and released when idle.
+     */
+    @Override
+    void close();
+
     /**
      * Get a list of the running models
      * 
@@ -218,6 +459,14 @@ public interface JOllamaClient {
      */
     boolean ping();
 
+    /**
+     * Get the version of the host.
+     * 
+     * @return the version, e.g. {@code 0.3.0}
+     * @throws JOllamaClientException if the request fails
+     */
+    String version() throws JOllamaClientException;
+
     /**
      * List the models.
      * 
@@ -241,6 +490,13 @@ public interface JOllamaClient {
 
     // BlobsSpec blobs(Path path);
 
+    /**
+     * Check for and create blobs. When the client has several hosts, a blob
+     * exists only once every host has it and is created on every host that
+     * does not, so a model created from it can be routed to any host.
+     * 
+     * @return the blobs spec
+     */
     BlobsSpec blobs();
 
     ShowResponse show(String name) throws JOllamaClientException;
@@ -279,6 +535,25 @@ public interface JOllamaClient {
 
     EmbeddingsSpec embeddings(Model model, String prompt);
 
+    /**
+     * Obtains a builder for embedding many prompts.
+     * 
+     * <p>
+     * On Ollama 0.3.0 and later the prompts are sent in batches to
+     * {@code /api/embed}. On older servers they are sent as individual
+     * {@code /api/embeddings} requests, pipelined over the connection pool.
+     * Either way the embeddings are normalized to unit length, as
+     * {@code /api/embed} returns them, and in the order of the prompts.
+     * </p>
+     * 
+     * @param model   The model to use
+     * @param prompts The prompts to embed
+     * @return a {@link BatchEmbeddingsSpec}
+     */
+    BatchEmbeddingsSpec embeddings(String model, List<String> prompts);
+
+    BatchEmbeddingsSpec embeddings(Model model, List<String> prompts);
+
     CreateSpec create(String name, Path path) throws InvalidModelFileException, IOException;
 
     CreateSpec create(String name, ModelFile modelFile);
@@ -334,6 +609,32 @@ public interface JOllamaClient {
         int exists(String digest) throws JOllamaClientException;
 
         int create(Path path) throws JOllamaClientException;
+
+        /**
+         * Create the blob of the file when the server does not have it yet,
+         * using a digest that has already been computed so the file is only
+         * read to upload it.
+         * 
+         * @param path   the path of the file
+         * @param digest the {@code sha256:} digest of the file
+         * @return the status of the upload, or of the check when the blob
+         *         already exists
+         * @throws JOllamaClientException if the request fails
+         */
+        int create(Path path, String digest) throws JOllamaClientException;
+
+        /**
+         * Create the blob of the file when the server does not have it yet,
+         * reporting how much of the file has been uploaded.
+         * 
+         * @param path     the path of the file
+         * @param digest   the {@code sha256:} digest of the file
+         * @param progress called as the file is uploaded
+         * @return the status of the upload, or of the check when the blob
+         *         already exists
+         * @throws JOllamaClientException if the request fails
+         */
+        int create(Path path, String digest, UploadProgress progress) throws JOllamaClientException;
     }
 
     /**
@@ -408,6 +709,9 @@ public interface JOllamaClient {
         /**
          * Stream the response.
          * 
+         * The request is sent when the returned {@link Flux} is subscribed.
+         * Cancelling the subscription cancels the request.
+         * 
          * @return a {@link Flux} of {@link GenerateResponse}
          * @throws JOllamaClientException in case of request or response errors
          */
@@ -415,6 +719,24 @@ public interface JOllamaClient {
 
         GenerateResponse batch() throws JOllamaClientException;
 
+        /**
+         * Send the request without blocking the calling thread.
+         * 
+         * @return a {@link CompletableFuture} of the {@link GenerateResponse},
+         *         completed exceptionally with a {@link JOllamaClientException}
+         *         in case of request or response errors. Cancelling the future
+         *         cancels the request.
+         */
+        CompletableFuture<GenerateResponse> batchAsync();
+
+        /**
+         * A {@link Mono} variant of {@link #batchAsync()}. The request is sent
+         * on subscription.
+         * 
+         * @return a {@link Mono} of the {@link GenerateResponse}
+         */
+        Mono<GenerateResponse> batchMono();
+
     }
 
     /**
@@ -454,10 +776,36 @@ public interface JOllamaClient {
          */
         ChatSpec keepAlive(KeepAlive keepAlive);
 
+        /**
+         * Stream the response.
+         * 
+         * The request is sent when the returned {@link Flux} is subscribed.
+         * Cancelling the subscription cancels the request.
+         * 
+         * @return a {@link Flux} of {@link ChatResponse}
+         * @throws JOllamaClientException in case of request or response errors
+         */
         Flux<ChatResponse> stream() throws JOllamaClientException;
 
         ChatResponse batch() throws JOllamaClientException;
 
+        /**
+         * Send the request without blocking the calling thread. The response
+         * message is added to the history when the future completes.
+         * 
+         * @return a {@link CompletableFuture} of the {@link ChatResponse}
+         * @see GenerateSpec#batchAsync()
+         */
+        CompletableFuture<ChatResponse> batchAsync();
+
+        /**
+         * A {@link Mono} variant of {@link #batchAsync()}. The request is sent
+         * on subscription.
+         * 
+         * @return a {@link Mono} of the {@link ChatResponse}
+         */
+        Mono<ChatResponse> batchMono();
+
     }
 
     interface EmbeddingsSpec {
@@ -467,6 +815,68 @@ public interface JOllamaClient {
         EmbeddingsSpec keepAlive(String keepAlive);
 
         EmbeddingsResponse get() throws JOllamaClientException;
+
+        /**
+         * Send the request without blocking the calling thread.
+         * 
+         * @return a {@link CompletableFuture} of the {@link EmbeddingsResponse}
+         * @see GenerateSpec#batchAsync()
+         */
+        CompletableFuture<EmbeddingsResponse> getAsync();
+
+        /**
+         * A {@link Mono} variant of {@link #getAsync()}. The request is sent on
+         * subscription.
+         * 
+         * @return a {@link Mono} of the {@link EmbeddingsResponse}
+         */
+        Mono<EmbeddingsResponse> getMono();
+    }
+
+    /**
+     * A builder for an embeddings request over many prompts.
+     */
+    interface BatchEmbeddingsSpec {
+
+        BatchEmbeddingsSpec options(Options options);
+
+        BatchEmbeddingsSpec keepAlive(String keepAlive);
+
+        /**
+         * The number of prompts sent in each {@code /api/embed} request.
+         * Defaults to 64.
+         * 
+         * @param batchSize the number of prompts per request
+         * @return this builder
+         */
+        BatchEmbeddingsSpec batchSize(int batchSize);
+
+        /**
+         * The number of requests in flight at once. Defaults to 4.
+         * 
+         * @param concurrency the number of concurrent requests
+         * @return this builder
+         */
+        BatchEmbeddingsSpec concurrency(int concurrency);
+
+        /**
+         * Embed every prompt and wait for the result.
+         * 
+         * @return the embeddings, one row per prompt in the order of the
+         *         prompts
+         * @throws JOllamaClientException if a request fails
+         */
+        float[][] get() throws JOllamaClientException;
+
+        /**
+         * Stream the embeddings in the order of the prompts, as each batch
+         * completes.
+         * 
+         * The requests are sent when the returned {@link Flux} is subscribed.
+         * 
+         * @return a {@link Flux} of the {@link Embedding}s
+         */
+        Flux<Embedding> stream();
     }
 
     /**
@@ -475,15 +885,49 @@ public interface JOllamaClient {
     interface PullSpec {
         PullSpec insecure(boolean insecure);
 
+        /**
+         * Stream the response.
+         * 
+         * The request is sent when the returned {@link Flux} is subscribed.
+         * Cancelling the subscription cancels the request.
+         * 
+         * @return a {@link Flux} of {@link PullResponse}
+         * @throws JOllamaClientException in case of request or response errors
+         */
         Flux<PullResponse> stream() throws JOllamaClientException;
 
         PullResponse batch() throws JOllamaClientException;
+
+        /**
+         * Send the request without blocking the calling thread.
+         * 
+         * @return a {@link CompletableFuture} of the {@link PullResponse}
+         * @see GenerateSpec#batchAsync()
+         */
+        CompletableFuture<PullResponse> batchAsync();
+
+        /**
+         * A {@link Mono} variant of {@link #batchAsync()}. The request is sent
+         * on subscription.
+         * 
+         * @return a {@link Mono} of the {@link PullResponse}
+         */
+        Mono<PullResponse> batchMono();
     }
 
     /**
      * A builder for a create request.
      */
     interface CreateSpec {
+        /**
+         * Stream the response.
+         * 
+         * The request is sent when the returned {@link Flux} is subscribed.
+         * Cancelling the subscription cancels the request.
+         * 
+         * @return a {@link Flux} of {@link CreateResponse}
+         * @throws JOllamaClientException in case of request or response errors
+         */
         Flux<CreateResponse> stream() throws JOllamaClientException;
 
         CreateResponse batch() throws JOllamaClientException;
@@ -0,0 +1,190 @@
+package io.github.glynch.jollama.client;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import io.github.glynch.jollama.support.DigestUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * Coalesces identical requests that are in flight at the same time, so that
+ * they share a single upstream call.
+ *
+ * <p>
+ * Requests are keyed on the path and a sha256 of the request serialized with
+ * its properties and map entries sorted, so two requests built in a different
+ * order share a key. A key is released as soon as its call completes, nothing
+ * is cached beyond that.
+ * </p>
+ */
+final class SingleFlight {
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .enable(JsonNodeFeature.WRITE_PROPERTIES_SORTED)
+            .serializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .build();
+
+    private final Map<String, CompletableFuture<?>> calls = new ConcurrentHashMap<>();
+    private final Map<String, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final Map<String, Flux<?>> streams = new ConcurrentHashMap<>();
+
+    /**
+     * The key of a request to the path.
+     *
+     * @param path    the path of the request
+     * @param request the request body
+     * @return the key
+     */
+    static String key(String path, Object request) {
+        try {
+            byte[] canonical = objectMapper.writeValueAsBytes(objectMapper.valueToTree(request));
+            return path + " " + DigestUtils.sha256hex(canonical);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new JOllamaClientException("Failed to serialize request for " + path, e);
+        }
+    }
+
+    /**
+     * Run the blocking call, or wait for the identical call that is already in
+     * flight.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T call(String key, Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> inFlight = (CompletableFuture<T>) calls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            T result = call.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // complete on errors too, or the callers waiting on the future hang
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    /**
+     * Start the asynchronous call, or attach to the identical call that is
+     * already in flight. Each caller gets its own future, the upstream call is
+     * only cancelled once every caller has cancelled.
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> callAsync(String key, Supplier<CompletableFuture<T>> call) {
+        while (true) {
+            Flight<T> created = new Flight<>();
+            Flight<T> flight = (Flight<T>) flights.putIfAbsent(key, created);
+            if (flight == null) {
+                flight = created;
+                start(key, created, call);
+            }
+            CompletableFuture<T> attached = flight.attach();
+            if (attached != null) {
+                return attached;
+            }
+            // every caller of this flight cancelled, it is being torn down
+            flights.remove(key, flight);
+        }
+    }
+
+    private <T> void start(String key, Flight<T> flight, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            return;
+        } catch (Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.upstream = upstream;
+        upstream.whenComplete((result, e) -> {
+            flights.remove(key, flight);
+            if (e != null) {
+                flight.result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                flight.result.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Subscribe to the stream, or attach to the identical stream that is
+     * already in flight. Late subscribers replay what has been received so far.
+     * The upstream is cancelled once every subscriber has cancelled.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Flux<T> stream(String key, Supplier<Flux<T>> stream) {
+        return Flux.defer(() -> (Flux<T>) streams.computeIfAbsent(key, k -> {
+            Object[] shared = new Object[1];
+            Flux<T> flux = stream.get()
+                    .doFinally(signal -> streams.remove(k, shared[0]))
+                    .replay()
+                    .refCount();
+            shared[0] = flux;
+            return flux;
+        }));
+    }
+
+    private static final class Flight<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger callers = new AtomicInteger();
+        private volatile CompletableFuture<T> upstream;
+
+        CompletableFuture<T> attach() {
+            int count;
+            do {
+                count = callers.get();
+                if (count < 0) {
+                    return null;
+                }
+            } while (!callers.compareAndSet(count, count + 1));
+            CompletableFuture<T> future = new CompletableFuture<>();
+            result.whenComplete((data, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(data);
+                }
+            });
+            future.whenComplete((data, e) -> {
+                if (e instanceof CancellationException && callers.decrementAndGet() == 0
+                        && callers.compareAndSet(0, -1) && upstream != null) {
+                    upstream.cancel(true);
+                }
+            });
+            return future;
+        }
+
+    }
+
+}
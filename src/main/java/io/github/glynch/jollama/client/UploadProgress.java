@@ -0,0 +1,39 @@
+package io.github.glynch.jollama.client;
+
+/**
+ * A callback told how much of a file has been uploaded.
+ * 
+ * <p>
+ * It is called on the thread writing the request, once for every buffer of
+ * the file written to the connection, so it should return quickly. A retried
+ * request starts again from zero.
+ * </p>
+ * 
+ * <pre>
+ * client.blobs().create(path, digest, (written, total) -&gt; System.out.printf("%d%%%n", 100 * written / total));
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+@FunctionalInterface
+public interface UploadProgress {
+
+    /**
+     * Called after a part of the file has been written.
+     * 
+     * @param written the number of bytes written so far
+     * @param total   the size of the file
+     */
+    void progress(long written, long total);
+
+    /**
+     * A callback that ignores the progress.
+     * 
+     * @return the callback
+     */
+    static UploadProgress none() {
+        return (written, total) -> {
+        };
+    }
+
+}
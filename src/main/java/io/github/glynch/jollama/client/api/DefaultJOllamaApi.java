@@ -1,23 +1,31 @@
 package io.github.glynch.jollama.client.api;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import io.github.glynch.jollama.client.ClientStats;
 import io.github.glynch.jollama.client.JOllamaClientException;
 import io.github.glynch.jollama.client.JOllamaClientRequestException;
+import io.github.glynch.jollama.client.UploadProgress;
 import io.github.glynch.jollama.support.DefaultResponseStatusErrorHandler;
+import io.github.glynch.jollama.support.NdJsonDecoder;
 import io.github.glynch.jollama.support.ResponseStatusErrorHandler;
+import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -25,6 +33,7 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 public class DefaultJOllamaApi implements JOllamaApi {
     private static final ObjectMapper objectMapper = new ObjectMapper();
@@ -39,12 +48,63 @@ public class DefaultJOllamaApi implements JOllamaApi {
     private static final MediaType APPLICATION_JSON = MediaType.parse("application/json");
     private static final ResponseStatusErrorHandler errorHandler = new DefaultResponseStatusErrorHandler(objectMapper);
 
+    private static final Executor DEFAULT_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "jollama-decoder-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     private final OkHttpClient client;
     private final String host;
+    private final int prefetch;
+    private final Executor executor;
+    private final Scheduler scheduler;
 
     public DefaultJOllamaApi(OkHttpClient client, String host) {
+        this(client, host, 0);
+    }
+
+    /**
+     * Create an api that buffers streamed records ahead of demand.
+     * 
+     * @param client   the http client
+     * @param host     the Ollama host
+     * @param prefetch the number of streamed records to read ahead of
+     *                 downstream demand. {@code 0} reads the response only
+     *                 when there is demand
+     */
+    public DefaultJOllamaApi(OkHttpClient client, String host, int prefetch) {
+        this(client, host, prefetch, DEFAULT_EXECUTOR, null);
+    }
+
+    /**
+     * Create an api that runs response decoding, and optionally the reading of
+     * streamed responses, on the supplied executors.
+     * 
+     * @param client    the http client
+     * @param host      the Ollama host
+     * @param prefetch  the number of streamed records to read ahead of
+     *                  downstream demand
+     * @param executor  the executor used to decode asynchronous responses
+     * @param scheduler the scheduler streamed responses are read on, or
+     *                  {@code null} to read them on the subscribing thread
+     */
+    public DefaultJOllamaApi(OkHttpClient client, String host, int prefetch, Executor executor,
+            Scheduler scheduler) {
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("prefetch cannot be negative");
+        }
         this.client = client;
         this.host = host;
+        this.prefetch = prefetch;
+        this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+        this.scheduler = scheduler;
     }
 
     private HttpUrl getUrl(String path) {
@@ -76,6 +136,15 @@ public class DefaultJOllamaApi implements JOllamaApi {
         return client.followSslRedirects();
     }
 
+    @Override
+    public ClientStats stats() {
+        ConnectionPool connectionPool = client.connectionPool();
+        Dispatcher dispatcher = client.dispatcher();
+        return new ClientStats(connectionPool.connectionCount(), connectionPool.idleConnectionCount(),
+                dispatcher.runningCallsCount(), dispatcher.queuedCallsCount(), dispatcher.getMaxRequests(),
+                dispatcher.getMaxRequestsPerHost());
+    }
+
     @Override
     public Response execute(Request request) {
         try {
@@ -102,13 +171,47 @@ public class DefaultJOllamaApi implements JOllamaApi {
     }
 
     @Override
-    public <T> T execute(Request request, Class<T> type, Callback callback) {
-        try {
-            client.newCall(request).enqueue(callback);
-        } catch (Exception e) {
-            throw new JOllamaClientException(e.getMessage(), e);
+    public <T> CompletableFuture<T> executeAsync(Request request, Class<T> type) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        future.whenComplete((data, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new JOllamaClientRequestException(e.getMessage(), e,
+                        request.url().toString(), request.method()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    executor.execute(() -> decode(request, response, type, future));
+                } catch (RejectedExecutionException e) {
+                    response.close();
+                    future.completeExceptionally(new JOllamaClientException(e.getMessage(), e));
+                }
+            }
+        });
+        return future;
+    }
+
+    private static <T> void decode(Request request, Response response, Class<T> type, CompletableFuture<T> future) {
+        try (response) {
+            if (response.isSuccessful()) {
+                future.complete(objectMapper.readValue(response.body().byteStream(), type));
+            } else {
+                errorHandler.handleError(response);
+            }
+        } catch (JOllamaClientException e) {
+            future.completeExceptionally(e);
+        } catch (IOException e) {
+            future.completeExceptionally(new JOllamaClientRequestException(e.getMessage(), e,
+                    request.url().toString(), request.method()));
         }
-        return null;
     }
 
     @Override
@@ -174,10 +277,22 @@ public class DefaultJOllamaApi implements JOllamaApi {
     }
 
     @Override
-    public Response upload(String path, Path filePath) {
+    public <T> CompletableFuture<T> postAsync(String path, Object body, Class<T> type) {
+        Request request = new Request.Builder()
+                .url(getUrl(path))
+                .header("Accept", "application/json")
+                .header("Content-type", "application/json")
+                .post(json(body))
+                .build();
+
+        return executeAsync(request, type);
+    }
+
+    @Override
+    public Response upload(String path, Path filePath, UploadProgress progress) {
 
-        InputStreamRequestBody requestBody = new InputStreamRequestBody(filePath,
-                MediaType.parse("application/octet-stream"));
+        FileRequestBody requestBody = new FileRequestBody(filePath, MediaType.parse("application/octet-stream"),
+                FileRequestBody.DEFAULT_BUFFER_SIZE, progress);
 
         Request request = new Request.Builder()
                 .url(getUrl(path))
@@ -197,43 +312,74 @@ public class DefaultJOllamaApi implements JOllamaApi {
                 .post(json(body))
                 .build();
 
-        Response response = execute(request);
+        Flux<T> flux = Flux.defer(() -> {
+            Call call = client.newCall(request);
+            return Flux.<T, NdJsonDecoder<T>>generate(
+                    () -> open(call, type),
+                    (decoder, sink) -> {
+                        try {
+                            T data = decoder.read();
+                            if (data != null) {
+                                sink.next(data);
+                            } else {
+                                sink.complete();
+                            }
+                        } catch (IOException e) {
+                            if (!call.isCanceled()) {
+                                sink.error(new JOllamaClientRequestException(e.getMessage(), e,
+                                        request.url().toString(), request.method()));
+                            }
+                        }
+                        return decoder;
+                    },
+                    DefaultJOllamaApi::close)
+                    .doOnCancel(call::cancel);
+        });
+
+        if (scheduler != null) {
+            flux = flux.subscribeOn(scheduler);
+        }
 
-        if (!response.isSuccessful()) {
-            errorHandler.handleError(response);
+        // at most prefetch records are read ahead, replenished as they are consumed
+        if (prefetch > 0) {
+            flux = scheduler != null ? flux.publishOn(scheduler, prefetch) : flux.limitRate(prefetch);
         }
 
-        return Flux.create(
-                sink -> {
-                    try (InputStream inputStream = response.body().byteStream();
-                            BufferedReader reader = new BufferedReader(
-                                    new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        return flux;
 
-                        String line;
-                        T data;
+    }
 
-                        while ((line = reader.readLine()) != null) {
-                            data = objectMapper.readValue(line, type);
-                            sink.next(data);
-                        }
+    private <T> NdJsonDecoder<T> open(Call call, Class<T> type) {
+        Request request = call.request();
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            throw new JOllamaClientRequestException(e.getMessage(), e, request.url().toString(), request.method());
+        }
 
-                        sink.complete();
-                    } catch (IOException e) {
-                        sink.error(e);
-                    }
-                });
+        if (!response.isSuccessful()) {
+            errorHandler.handleError(response);
+        }
 
+        try {
+            return new NdJsonDecoder<>(response.body().source(), type, objectMapper);
+        } catch (IOException e) {
+            response.close();
+            throw new JOllamaClientRequestException(e.getMessage(), e, request.url().toString(), request.method());
+        }
     }
 
-    private static RequestBody json(Object body) {
-        RequestBody requestBody = null;
+    private static void close(NdJsonDecoder<?> decoder) {
         try {
-            requestBody = RequestBody.create(objectMapper.writeValueAsString(body),
-                    APPLICATION_JSON);
-        } catch (JsonProcessingException e) {
-
+            decoder.close();
+        } catch (IOException e) {
+            // the call is finished or cancelled, nothing left to read
         }
-        return requestBody;
+    }
+
+    private static RequestBody json(Object body) {
+        return new JsonRequestBody(objectMapper, body, APPLICATION_JSON);
     }
 
 }
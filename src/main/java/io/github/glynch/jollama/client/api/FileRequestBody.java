@@ -0,0 +1,127 @@
+package io.github.glynch.jollama.client.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import io.github.glynch.jollama.client.UploadProgress;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * A request body that sends the contents of a file.
+ *
+ * <p>
+ * The file is read with positional reads of a {@link FileChannel} into a
+ * direct buffer, which is handed to the sink as a
+ * {@link java.nio.channels.WritableByteChannel}. The bytes are copied once,
+ * from the direct buffer into the segments of the sink, instead of through
+ * the heap arrays of an {@link java.io.InputStream}. The buffer is allocated
+ * once per write and handed to the sink one okio segment at a time, so the
+ * segments are recycled and uploading a multi-GB model creates no garbage per
+ * read.
+ * </p>
+ *
+ * <p>
+ * OkHttp owns the socket, and encrypts on it for https, so the bytes cannot
+ * be handed to the kernel with {@code sendfile}. This is as close as the
+ * stack allows.
+ * </p>
+ *
+ * This should not be used directly.
+ */
+public class FileRequestBody extends RequestBody {
+
+    /**
+     * The default size of the read buffer, 1 MiB.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int SEGMENT_SIZE = 8192;
+
+    private final Path path;
+    private final MediaType mediaType;
+    private final int bufferSize;
+    private final UploadProgress progress;
+    private long contentLength = -1;
+
+    /**
+     * Create a body of the file.
+     *
+     * @param path      the path of the file
+     * @param mediaType the media type of the body
+     */
+    public FileRequestBody(Path path, MediaType mediaType) {
+        this(path, mediaType, DEFAULT_BUFFER_SIZE, UploadProgress.none());
+    }
+
+    /**
+     * Create a body of the file.
+     *
+     * @param path       the path of the file
+     * @param mediaType  the media type of the body
+     * @param bufferSize the size of the read buffer
+     * @param progress   called after each buffer has been written
+     */
+    public FileRequestBody(Path path, MediaType mediaType, int bufferSize, UploadProgress progress) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be at least 1");
+        }
+        this.path = Objects.requireNonNull(path, "path cannot be null");
+        this.mediaType = mediaType;
+        this.bufferSize = bufferSize;
+        this.progress = Objects.requireNonNull(progress, "progress cannot be null");
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        // measured once, so the body matches the Content-Length already sent
+        if (contentLength == -1) {
+            contentLength = Files.size(path);
+        }
+        return contentLength;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long total = contentLength();
+            if (channel.size() != total) {
+                throw changed(total, channel.size());
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(bufferSize, Math.max(total, 1)));
+            long written = 0;
+            while (written < total) {
+                int read = channel.read(buffer, written);
+                if (read == -1) {
+                    throw changed(total, written);
+                }
+                buffer.flip();
+                while (buffer.position() < read) {
+                    // a segment at a time, so each is flushed and pooled again before the next
+                    buffer.limit(Math.min(buffer.position() + SEGMENT_SIZE, read));
+                    sink.write(buffer);
+                }
+                buffer.clear();
+                written += read;
+                progress.progress(written, total);
+            }
+        }
+    }
+
+    private IOException changed(long expected, long actual) {
+        return new IOException("File " + path + " changed during upload, expected " + expected + " bytes but found "
+                + actual);
+    }
+
+}
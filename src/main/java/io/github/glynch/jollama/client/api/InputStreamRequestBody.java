@@ -11,6 +11,13 @@ import okio.BufferedSink;
 import okio.Okio;
 import okio.Source;
 
+/**
+ * A request body that streams a file through an {@link InputStream}.
+ *
+ * @deprecated Uploads use {@link FileRequestBody}, which copies the file
+ *             without going through heap arrays.
+ */
+@Deprecated
 public class InputStreamRequestBody extends RequestBody {
 
     private final Path path;
@@ -1,8 +1,11 @@
 package io.github.glynch.jollama.client.api;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import okhttp3.Callback;
+import io.github.glynch.jollama.client.ClientStats;
+import io.github.glynch.jollama.client.UploadProgress;
 import okhttp3.Request;
 import okhttp3.Response;
 import reactor.core.publisher.Flux;
@@ -18,7 +21,19 @@ public interface JOllamaApi {
 
     <T> T execute(Request request, Class<T> type);
 
-    <T> T execute(Request request, Class<T> type, Callback callback);
+    /**
+     * Execute the request asynchronously.
+     * 
+     * The response is decoded off the http dispatcher threads on a bounded
+     * pool. Cancelling the returned future cancels the underlying HTTP call.
+     * 
+     * @param <T>     the type of the response
+     * @param request the request
+     * @param type    the type of the response
+     * @return a future completed with the decoded response, or exceptionally
+     *         with a {@link io.github.glynch.jollama.client.JOllamaClientException}
+     */
+    <T> CompletableFuture<T> executeAsync(Request request, Class<T> type);
 
     Response get(String path);
 
@@ -30,10 +45,38 @@ public interface JOllamaApi {
 
     Response post(String path, Object body);
 
-    Response upload(String path, Path filePath);
+    default Response upload(String path, Path filePath) {
+        return upload(path, filePath, UploadProgress.none());
+    }
+
+    /**
+     * Upload the contents of a file.
+     * 
+     * @param path     the path of the request
+     * @param filePath the path of the file
+     * @param progress called as the file is written to the connection
+     * @return the response
+     */
+    Response upload(String path, Path filePath, UploadProgress progress);
 
     <T> T post(String path, Object body, Class<T> type);
 
+    <T> CompletableFuture<T> postAsync(String path, Object body, Class<T> type);
+
+    /**
+     * Stream a ndjson response.
+     * 
+     * The request is sent when the returned {@link Flux} is subscribed, not
+     * when this method is called. Records are read from the response as
+     * downstream demand allows. Cancelling the subscription cancels the
+     * underlying HTTP call.
+     * 
+     * @param <T>  the type of the streamed records
+     * @param path the request path
+     * @param body the request body
+     * @param type the type of the streamed records
+     * @return a cold {@link Flux} of the records
+     */
     <T> Flux<T> stream(String path, Object body, Class<T> type);
 
     String host();
@@ -46,4 +89,31 @@ public interface JOllamaApi {
 
     boolean followSslRedirects();
 
+    ClientStats stats();
+
+    /**
+     * Get the api to use for requests for the model.
+     * 
+     * @param model the model name
+     * @return the api for the model. Defaults to this api
+     */
+    default JOllamaApi route(String model) {
+        return this;
+    }
+
+    /**
+     * Get the api of each Ollama host behind this api.
+     * 
+     * @return the api of each host. Defaults to this api
+     */
+    default List<JOllamaApi> nodes() {
+        return List.of(this);
+    }
+
+    /**
+     * Release any background resources held by this api.
+     */
+    default void close() {
+    }
+
 }
@@ -0,0 +1,93 @@
+package io.github.glynch.jollama.client.api;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * A request body that serializes a value to JSON as it is written.
+ *
+ * <p>
+ * The JSON is encoded straight into the sink of the connection, so the body is
+ * never held on the heap as a {@code String} or a byte array. The length of
+ * such a body is unknown and it is sent chunked. With {@code knownLength} the
+ * value is serialized once, the first time the length is asked for, and those
+ * bytes are sent instead.
+ * </p>
+ *
+ * <p>
+ * A value that cannot be serialized fails the call with the
+ * {@link com.fasterxml.jackson.core.JsonProcessingException} thrown by
+ * Jackson.
+ * </p>
+ *
+ * This should not be used directly.
+ */
+public class JsonRequestBody extends RequestBody {
+
+    private final ObjectWriter writer;
+    private final Object value;
+    private final MediaType mediaType;
+    private final boolean knownLength;
+    private byte[] bytes;
+
+    /**
+     * Create a body that streams the JSON of the value.
+     *
+     * @param objectMapper the mapper used to serialize the value
+     * @param value        the value
+     * @param mediaType    the media type of the body
+     */
+    public JsonRequestBody(ObjectMapper objectMapper, Object value, MediaType mediaType) {
+        this(objectMapper, value, mediaType, false);
+    }
+
+    /**
+     * Create a body of the JSON of the value.
+     *
+     * @param objectMapper the mapper used to serialize the value
+     * @param value        the value
+     * @param mediaType    the media type of the body
+     * @param knownLength  whether to serialize the value up front so the body
+     *                     has a content length
+     */
+    public JsonRequestBody(ObjectMapper objectMapper, Object value, MediaType mediaType, boolean knownLength) {
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.value = value;
+        this.mediaType = mediaType;
+        this.knownLength = knownLength;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return knownLength ? bytes().length : -1;
+    }
+
+    private synchronized byte[] bytes() throws IOException {
+        if (bytes == null) {
+            bytes = writer.writeValueAsBytes(value);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (knownLength) {
+            sink.write(bytes());
+        } else {
+            writer.writeValue(sink.outputStream(), value);
+        }
+    }
+
+}
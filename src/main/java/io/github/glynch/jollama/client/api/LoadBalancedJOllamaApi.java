@@ -0,0 +1,490 @@
+package io.github.glynch.jollama.client.api;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.github.glynch.jollama.client.ClientStats;
+import io.github.glynch.jollama.client.UploadProgress;
+import io.github.glynch.jollama.support.DigestUtils;
+import okhttp3.Request;
+import okhttp3.Response;
+import reactor.core.publisher.Flux;
+
+/**
+ * An api that fronts several Ollama hosts.
+ *
+ * <p>
+ * Requests for a model are routed with consistent hashing, so each model is
+ * served by a stable subset of {@code replicas} hosts and stays loaded there.
+ * When every preferred host has {@code maxOutstanding} requests in flight, the
+ * request goes to the host with the fewest outstanding requests instead.
+ * Requests that are not bound to a model always go to the least loaded host.
+ * </p>
+ *
+ * <p>
+ * With a {@link ResidencyTracker} the hosts where the model is already loaded
+ * are preferred over the consistent hash while they are not saturated, and a
+ * model is only loaded on a new host when it is not loaded anywhere or every
+ * host it is loaded on is saturated.
+ * </p>
+ *
+ * This should not be used directly.
+ */
+public class LoadBalancedJOllamaApi implements JOllamaApi {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final List<Node> nodes;
+    private final TreeMap<Long, Node> ring = new TreeMap<>();
+    private final Map<String, List<Node>> preferred = new ConcurrentHashMap<>();
+    private final int replicas;
+    private final int maxOutstanding;
+    private final ResidencyTracker tracker;
+
+    /**
+     * Create a load balanced api.
+     *
+     * @param apis           the api of each host
+     * @param replicas       the number of hosts a model is routed to
+     * @param maxOutstanding the number of outstanding requests at which a host
+     *                       is saturated
+     */
+    public LoadBalancedJOllamaApi(List<? extends JOllamaApi> apis, int replicas, int maxOutstanding) {
+        this(apis, replicas, maxOutstanding, null);
+    }
+
+    /**
+     * Create a load balanced api that routes to the hosts where a model is
+     * loaded.
+     *
+     * @param apis             the api of each host
+     * @param replicas         the number of hosts a model is routed to when it
+     *                         is not loaded
+     * @param maxOutstanding   the number of outstanding requests at which a
+     *                         host is saturated
+     * @param residencyPolling the interval at which {@code /api/ps} of each
+     *                         host is polled, or {@code null} to route by
+     *                         consistent hashing only
+     */
+    public LoadBalancedJOllamaApi(List<? extends JOllamaApi> apis, int replicas, int maxOutstanding,
+            Duration residencyPolling) {
+        Objects.requireNonNull(apis, "apis cannot be null");
+        if (apis.isEmpty()) {
+            throw new IllegalArgumentException("apis cannot be empty");
+        }
+        if (replicas < 1) {
+            throw new IllegalArgumentException("replicas must be at least 1");
+        }
+        if (maxOutstanding < 1) {
+            throw new IllegalArgumentException("maxOutstanding must be at least 1");
+        }
+        List<Node> nodes = new ArrayList<>();
+        for (JOllamaApi api : apis) {
+            Node node = new Node(api);
+            nodes.add(node);
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(api.host() + "#" + i), node);
+            }
+        }
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.replicas = Math.min(replicas, nodes.size());
+        this.maxOutstanding = maxOutstanding;
+        this.tracker = residencyPolling != null ? new ResidencyTracker(nodes(), residencyPolling) : null;
+    }
+
+    private static long hash(String key) {
+        return ByteBuffer.wrap(DigestUtils.sha256(key)).getLong();
+    }
+
+    /**
+     * Normalize a model name so that {@code llama3} and {@code llama3:latest}
+     * are routed to the same hosts.
+     */
+    static String normalize(String model) {
+        int slash = model.lastIndexOf('/');
+        return model.indexOf(':', slash + 1) < 0 ? model + ":latest" : model;
+    }
+
+    /**
+     * The hosts a model is routed to when they are not saturated, in order of
+     * preference.
+     *
+     * @param model the model name
+     * @return the preferred hosts
+     */
+    public List<String> preferredHosts(String model) {
+        return preferred(model).stream().map(node -> node.api.host()).toList();
+    }
+
+    private List<Node> preferred(String model) {
+        return preferred.computeIfAbsent(normalize(model), key -> {
+            List<Node> selected = new ArrayList<>(replicas);
+            long hash = hash(key);
+            for (Node node : ring.tailMap(hash).values()) {
+                if (selected.size() == replicas) {
+                    break;
+                }
+                if (!selected.contains(node)) {
+                    selected.add(node);
+                }
+            }
+            for (Node node : ring.headMap(hash).values()) {
+                if (selected.size() == replicas) {
+                    break;
+                }
+                if (!selected.contains(node)) {
+                    selected.add(node);
+                }
+            }
+            return Collections.unmodifiableList(selected);
+        });
+    }
+
+    /**
+     * Choose the host of a request, without side effects.
+     */
+    Node select(String model) {
+        if (model == null) {
+            return leastOutstanding();
+        }
+        Node selected = tracker != null ? resident(model) : null;
+        if (selected == null) {
+            selected = preferredOrLeastOutstanding(model);
+        }
+        return selected;
+    }
+
+    private Node resident(String model) {
+        Node selected = null;
+        for (Node node : nodes) {
+            if (node.outstanding.get() < maxOutstanding && tracker.isResident(node.api, model)
+                    && (selected == null || node.outstanding.get() < selected.outstanding.get())) {
+                selected = node;
+            }
+        }
+        return selected;
+    }
+
+    private Node preferredOrLeastOutstanding(String model) {
+        for (Node node : preferred(model)) {
+            if (node.outstanding.get() < maxOutstanding) {
+                return node;
+            }
+        }
+        return leastOutstanding();
+    }
+
+    private Node leastOutstanding() {
+        return nodes.stream().min(Comparator.comparingInt(node -> node.outstanding.get())).get();
+    }
+
+    private <R> R call(Node node, String model, Function<JOllamaApi, R> function) {
+        loading(node, model);
+        node.outstanding.incrementAndGet();
+        try {
+            return function.apply(node.api);
+        } finally {
+            node.outstanding.decrementAndGet();
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(Node node, String model,
+            Function<JOllamaApi, CompletableFuture<T>> function) {
+        loading(node, model);
+        node.outstanding.incrementAndGet();
+        CompletableFuture<T> future;
+        try {
+            future = function.apply(node.api);
+        } catch (RuntimeException e) {
+            node.outstanding.decrementAndGet();
+            throw e;
+        }
+        future.whenComplete((data, e) -> node.outstanding.decrementAndGet());
+        return future;
+    }
+
+    private <T> Flux<T> stream(Supplier<Node> selector, String model, Function<JOllamaApi, Flux<T>> function) {
+        return Flux.defer(() -> {
+            Node node = selector.get();
+            loading(node, model);
+            node.outstanding.incrementAndGet();
+            return function.apply(node.api).doFinally(signal -> node.outstanding.decrementAndGet());
+        });
+    }
+
+    /**
+     * Record that the model is being loaded on the host the request is sent
+     * to.
+     */
+    private void loading(Node node, String model) {
+        if (tracker != null && model != null) {
+            tracker.loading(node.api, model);
+        }
+    }
+
+    @Override
+    public JOllamaApi route(String model) {
+        Objects.requireNonNull(model, "model cannot be null");
+        return new RoutedApi(model);
+    }
+
+    @Override
+    public List<JOllamaApi> nodes() {
+        return nodes.stream().map(node -> node.api).toList();
+    }
+
+    @Override
+    public Response execute(Request request) {
+        return nodes.get(0).api.execute(request);
+    }
+
+    @Override
+    public <T> T execute(Request request, Class<T> type) {
+        return nodes.get(0).api.execute(request, type);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> executeAsync(Request request, Class<T> type) {
+        return nodes.get(0).api.executeAsync(request, type);
+    }
+
+    @Override
+    public Response get(String path) {
+        return call(leastOutstanding(), null, api -> api.get(path));
+    }
+
+    @Override
+    public <T> T get(String path, Class<T> type) {
+        return call(leastOutstanding(), null, api -> api.get(path, type));
+    }
+
+    @Override
+    public Response head(String path) {
+        return call(leastOutstanding(), null, api -> api.head(path));
+    }
+
+    @Override
+    public Response delete(String path, Object body) {
+        return call(leastOutstanding(), null, api -> api.delete(path, body));
+    }
+
+    @Override
+    public Response post(String path, Object body) {
+        return call(leastOutstanding(), null, api -> api.post(path, body));
+    }
+
+    @Override
+    public Response upload(String path, Path filePath, UploadProgress progress) {
+        return call(leastOutstanding(), null, api -> api.upload(path, filePath, progress));
+    }
+
+    @Override
+    public <T> T post(String path, Object body, Class<T> type) {
+        return call(leastOutstanding(), null, api -> api.post(path, body, type));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> postAsync(String path, Object body, Class<T> type) {
+        return callAsync(leastOutstanding(), null, api -> api.postAsync(path, body, type));
+    }
+
+    @Override
+    public <T> Flux<T> stream(String path, Object body, Class<T> type) {
+        return stream(this::leastOutstanding, null, api -> api.stream(path, body, type));
+    }
+
+    @Override
+    public String host() {
+        return nodes.get(0).api.host();
+    }
+
+    @Override
+    public int connectTimeout() {
+        return nodes.get(0).api.connectTimeout();
+    }
+
+    @Override
+    public int readTimeout() {
+        return nodes.get(0).api.readTimeout();
+    }
+
+    @Override
+    public boolean followRedirects() {
+        return nodes.get(0).api.followRedirects();
+    }
+
+    @Override
+    public boolean followSslRedirects() {
+        return nodes.get(0).api.followSslRedirects();
+    }
+
+    @Override
+    public ClientStats stats() {
+        return nodes.get(0).api.stats();
+    }
+
+    @Override
+    public void close() {
+        if (tracker != null) {
+            tracker.close();
+        }
+    }
+
+    static final class Node {
+        final JOllamaApi api;
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        Node(JOllamaApi api) {
+            this.api = api;
+        }
+    }
+
+    /**
+     * A view of the api that routes every request for a model.
+     *
+     * <p>
+     * The host is chosen on the first request and every later request goes
+     * to the same host, so the requests of one spec, like the blob uploads
+     * and the create request of a model, are not split across hosts.
+     * </p>
+     */
+    private final class RoutedApi implements JOllamaApi {
+
+        private final String model;
+        private volatile Node node;
+
+        RoutedApi(String model) {
+            this.model = model;
+        }
+
+        private Node node() {
+            Node node = this.node;
+            if (node == null) {
+                synchronized (this) {
+                    node = this.node;
+                    if (node == null) {
+                        node = select(model);
+                        this.node = node;
+                    }
+                }
+            }
+            return node;
+        }
+
+        @Override
+        public Response execute(Request request) {
+            return LoadBalancedJOllamaApi.this.execute(request);
+        }
+
+        @Override
+        public <T> T execute(Request request, Class<T> type) {
+            return LoadBalancedJOllamaApi.this.execute(request, type);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> executeAsync(Request request, Class<T> type) {
+            return LoadBalancedJOllamaApi.this.executeAsync(request, type);
+        }
+
+        @Override
+        public Response get(String path) {
+            return call(node(), model, api -> api.get(path));
+        }
+
+        @Override
+        public <T> T get(String path, Class<T> type) {
+            return call(node(), model, api -> api.get(path, type));
+        }
+
+        @Override
+        public Response head(String path) {
+            return call(node(), model, api -> api.head(path));
+        }
+
+        @Override
+        public Response delete(String path, Object body) {
+            return call(node(), model, api -> api.delete(path, body));
+        }
+
+        @Override
+        public Response post(String path, Object body) {
+            return call(node(), model, api -> api.post(path, body));
+        }
+
+        @Override
+        public Response upload(String path, Path filePath, UploadProgress progress) {
+            return call(node(), model, api -> api.upload(path, filePath, progress));
+        }
+
+        @Override
+        public <T> T post(String path, Object body, Class<T> type) {
+            return call(node(), model, api -> api.post(path, body, type));
+        }
+
+        @Override
+        public <T> CompletableFuture<T> postAsync(String path, Object body, Class<T> type) {
+            return callAsync(node(), model, api -> api.postAsync(path, body, type));
+        }
+
+        @Override
+        public <T> Flux<T> stream(String path, Object body, Class<T> type) {
+            return LoadBalancedJOllamaApi.this.stream(this::node, model, api -> api.stream(path, body, type));
+        }
+
+        @Override
+        public JOllamaApi route(String model) {
+            return LoadBalancedJOllamaApi.this.route(model);
+        }
+
+        @Override
+        public List<JOllamaApi> nodes() {
+            return LoadBalancedJOllamaApi.this.nodes();
+        }
+
+        @Override
+        public String host() {
+            Node node = this.node;
+            return (node != null ? node : select(model)).api.host();
+        }
+
+        @Override
+        public int connectTimeout() {
+            return LoadBalancedJOllamaApi.this.connectTimeout();
+        }
+
+        @Override
+        public int readTimeout() {
+            return LoadBalancedJOllamaApi.this.readTimeout();
+        }
+
+        @Override
+        public boolean followRedirects() {
+            return LoadBalancedJOllamaApi.this.followRedirects();
+        }
+
+        @Override
+        public boolean followSslRedirects() {
+            return LoadBalancedJOllamaApi.this.followSslRedirects();
+        }
+
+        @Override
+        public ClientStats stats() {
+            return LoadBalancedJOllamaApi.this.stats();
+        }
+
+    }
+
+}
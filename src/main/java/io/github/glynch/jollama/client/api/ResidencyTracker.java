@@ -0,0 +1,127 @@
+package io.github.glynch.jollama.client.api;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.glynch.jollama.KeepAlive;
+import io.github.glynch.jollama.process.ProcessModel;
+import io.github.glynch.jollama.process.ProcessModels;
+
+/**
+ * Keeps a per host view of which models are loaded, and until when, by
+ * polling {@code /api/ps} of each host in the background. Each host is polled
+ * on its own thread, so a slow or unreachable host does not delay the others.
+ *
+ * This should not be used directly.
+ */
+public class ResidencyTracker implements AutoCloseable {
+
+    private static final String PS_PATH = "/api/ps";
+
+    private final List<JOllamaApi> nodes;
+    private final Map<JOllamaApi, Map<String, OffsetDateTime>> residency = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Create a tracker that polls the hosts at the interval.
+     *
+     * @param nodes    the api of each host
+     * @param interval the interval between polls
+     */
+    public ResidencyTracker(List<JOllamaApi> nodes, Duration interval) {
+        Objects.requireNonNull(nodes, "nodes cannot be null");
+        Objects.requireNonNull(interval, "interval cannot be null");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.nodes = List.copyOf(nodes);
+        for (JOllamaApi node : this.nodes) {
+            residency.put(node, new ConcurrentHashMap<>());
+        }
+        this.scheduler = Executors.newScheduledThreadPool(this.nodes.size(), runnable -> {
+            Thread thread = new Thread(runnable, "jollama-residency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (JOllamaApi node : this.nodes) {
+            scheduler.scheduleWithFixedDelay(() -> poll(node), 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Refresh the view of every host, polling them concurrently.
+     */
+    public void poll() {
+        CompletableFuture.allOf(nodes.stream()
+                .map(node -> CompletableFuture.runAsync(() -> poll(node), scheduler))
+                .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private void poll(JOllamaApi node) {
+        Map<String, OffsetDateTime> models = new ConcurrentHashMap<>();
+        try {
+            ProcessModels processModels = node.get(PS_PATH, ProcessModels.class);
+            if (processModels != null && processModels.models() != null) {
+                for (ProcessModel model : processModels.models()) {
+                    models.put(LoadBalancedJOllamaApi.normalize(model.name()),
+                            model.expiresAt() != null ? model.expiresAt() : OffsetDateTime.MAX);
+                }
+            }
+        } catch (RuntimeException e) {
+            // an unreachable host has nothing loaded as far as routing is concerned
+        }
+        residency.put(node, models);
+    }
+
+    /**
+     * Whether the model is loaded on the host and not yet expired.
+     *
+     * @param node  the api of the host
+     * @param model the model name
+     * @return {@code true} if the model is loaded
+     */
+    public boolean isResident(JOllamaApi node, String model) {
+        Map<String, OffsetDateTime> models = residency.get(node);
+        if (models == null) {
+            return false;
+        }
+        OffsetDateTime expiresAt = models.get(LoadBalancedJOllamaApi.normalize(model));
+        return expiresAt != null && expiresAt.isAfter(OffsetDateTime.now());
+    }
+
+    /**
+     * Record that a request for the model was sent to the host, so the model
+     * is treated as loaded there until the next poll, or the default keep
+     * alive has passed.
+     *
+     * @param node  the api of the host
+     * @param model the model name
+     */
+    public void loading(JOllamaApi node, String model) {
+        Map<String, OffsetDateTime> models = residency.get(node);
+        if (models != null) {
+            OffsetDateTime expiresAt = OffsetDateTime.now()
+                    .plus(Duration.ofSeconds(KeepAlive.DEFAULT.duration()));
+            models.merge(LoadBalancedJOllamaApi.normalize(model), expiresAt,
+                    (current, loading) -> current.isAfter(loading) ? current : loading);
+        }
+    }
+
+    /**
+     * Stop polling.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,24 @@
+package io.github.glynch.jollama.embeddings;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.github.glynch.jollama.Options;
+
+/**
+ * Multi input embed request, supported by Ollama 0.3.0 and later.
+ * 
+ * @param model     The model.
+ * @param input     The inputs to embed.
+ * @param options   The options.
+ * @param keepAlive The keep alive.
+ * 
+ * @author Graham Lynch
+ */
+public record EmbedRequest(
+        String model,
+        List<String> input,
+        Options options,
+        @JsonProperty("keep_alive") String keepAlive) {
+}
@@ -0,0 +1,14 @@
+package io.github.glynch.jollama.embeddings;
+
+import java.util.List;
+
+/**
+ * Multi input embed response.
+ * 
+ * @param model      The model.
+ * @param embeddings The embeddings, in the order of the inputs.
+ * 
+ * @author Graham Lynch
+ */
+public record EmbedResponse(String model, List<Vector> embeddings) {
+}
@@ -0,0 +1,12 @@
+package io.github.glynch.jollama.embeddings;
+
+/**
+ * The embedding of one input of a batch.
+ * 
+ * @param index  The index of the input.
+ * @param vector The embedding.
+ * 
+ * @author Graham Lynch
+ */
+public record Embedding(int index, Vector vector) {
+}
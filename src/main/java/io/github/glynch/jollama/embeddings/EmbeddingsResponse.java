@@ -1,14 +1,41 @@
 package io.github.glynch.jollama.embeddings;
 
+import java.util.AbstractList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Embeddings response.
  * 
- * @param embedding The embeddings.
+ * @param vector The embedding, deserialized into primitive floats.
  *
  * @author Graham Lynch
  */
-public record EmbeddingsResponse(List<Double> embedding) {
+public record EmbeddingsResponse(@JsonProperty("embedding") Vector vector) {
+
+    /**
+     * Get the embedding as a list. The list is a view of the {@link #vector()}
+     * that boxes each dimension as it is read.
+     * 
+     * @return The embedding.
+     */
+    public List<Double> embedding() {
+        if (vector == null) {
+            return null;
+        }
+        return new AbstractList<>() {
+
+            @Override
+            public Double get(int index) {
+                return (double) vector.get(index);
+            }
+
+            @Override
+            public int size() {
+                return vector.dimensions();
+            }
+        };
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package io.github.glynch.jollama.embeddings;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * An embedding vector of primitive floats.
+ * 
+ * <pre>
+ * Vector sky = client.embeddings("nomic-embed-text", "Why is the sky blue?").get().vector();
+ * Vector sea = client.embeddings("nomic-embed-text", "Why is the sea blue?").get().vector();
+ * double similarity = sky.cosine(sea);
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+@JsonDeserialize(using = VectorDeserializer.class)
+public final class Vector {
+
+    private final float[] values;
+
+    Vector(float[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Create a vector of a copy of the values.
+     * 
+     * @param values The values.
+     * @return The vector.
+     */
+    public static Vector of(float... values) {
+        Objects.requireNonNull(values, "values cannot be null");
+        return new Vector(values.clone());
+    }
+
+    /**
+     * Get the number of dimensions.
+     * 
+     * @return The number of dimensions.
+     */
+    public int dimensions() {
+        return values.length;
+    }
+
+    /**
+     * Get the value of a dimension.
+     * 
+     * @param index The index of the dimension.
+     * @return The value.
+     */
+    public float get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Get a copy of the values.
+     * 
+     * @return The values.
+     */
+    @JsonValue
+    public float[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Get the dot product with another vector.
+     * 
+     * @param other The other vector.
+     * @return The dot product.
+     * @throws IllegalArgumentException If the dimensions differ.
+     */
+    public double dot(Vector other) {
+        Objects.requireNonNull(other, "other cannot be null");
+        return dot(values, other.values);
+    }
+
+    /**
+     * Get the euclidean norm.
+     * 
+     * @return The norm.
+     */
+    public double norm() {
+        return Math.sqrt(dot(values, values));
+    }
+
+    /**
+     * Get the cosine similarity with another vector.
+     * 
+     * @param other The other vector.
+     * @return The cosine similarity, or {@code 0} if either vector is zero.
+     * @throws IllegalArgumentException If the dimensions differ.
+     */
+    public double cosine(Vector other) {
+        Objects.requireNonNull(other, "other cannot be null");
+        double norms = norm() * other.norm();
+        return norms == 0 ? 0 : dot(other) / norms;
+    }
+
+    /**
+     * Get this vector scaled to a norm of 1, so that the dot product of
+     * normalized vectors is their cosine similarity.
+     * 
+     * @return The normalized vector, or this vector if it is zero.
+     */
+    public Vector normalize() {
+        double norm = norm();
+        if (norm == 0) {
+            return this;
+        }
+        float[] normalized = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalized[i] = (float) (values[i] / norm);
+        }
+        return new Vector(normalized);
+    }
+
+    static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("dimensions differ: " + a.length + " != " + b.length);
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Vector other && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.github.glynch.jollama.embeddings;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Deserializes a JSON array of numbers straight into the {@code float[]} of a
+ * {@link Vector}, without boxing each dimension.
+ * 
+ * @author Graham Lynch
+ */
+public class VectorDeserializer extends StdDeserializer<Vector> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public VectorDeserializer() {
+        super(Vector.class);
+    }
+
+    @Override
+    public Vector deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (Vector) context.handleUnexpectedToken(Vector.class, parser);
+        }
+        float[] values = new float[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                return (Vector) context.handleUnexpectedToken(float.class, parser);
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = parser.getFloatValue();
+        }
+        return new Vector(size == values.length ? values : Arrays.copyOf(values, size));
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.glynch.jollama.embeddings.cache;
+
+/**
+ * A point in time view of an {@link EmbeddingsCache}.
+ * 
+ * @param hits        The number of lookups answered by the cache, from memory
+ *                    or disk.
+ * @param misses      The number of lookups that had to go to the server.
+ * @param diskHits    The number of hits answered by the persistent tier.
+ * @param evictions   The number of embeddings evicted from memory.
+ * @param entries     The number of embeddings in memory.
+ * @param bytes       The approximate size of the embeddings in memory.
+ * @param diskEntries The number of embeddings in the persistent tier.
+ * 
+ * @author Graham Lynch
+ */
+public record CacheStats(
+        long hits,
+        long misses,
+        long diskHits,
+        long evictions,
+        long entries,
+        long bytes,
+        long diskEntries) {
+
+    /**
+     * The ratio of hits to lookups.
+     * 
+     * @return The hit rate, or {@code 0} if there were no lookups.
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+}
@@ -0,0 +1,164 @@
+package io.github.glynch.jollama.embeddings.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import io.github.glynch.jollama.Options;
+import io.github.glynch.jollama.support.DigestUtils;
+
+/**
+ * A cache of embeddings, so that text that has already been embedded is not
+ * sent to the server again.
+ * 
+ * <pre>
+ * EmbeddingsCache cache = EmbeddingsCache.persistent(64 * 1024 * 1024, Path.of("embeddings.cache"),
+ *         1024 * 1024 * 1024);
+ * JOllamaClient client = JOllamaClient.builder().embeddingsCache(cache).build();
+ * client.embeddings("nomic-embed-text", "Why is the sky blue?").get(); // miss
+ * client.embeddings("nomic-embed-text", "Why is the sky blue?").get(); // hit
+ * System.out.println(cache.stats().hitRate());
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+public interface EmbeddingsCache extends Closeable {
+
+    /**
+     * Create an in-memory cache that evicts the least recently used embeddings
+     * once they take more than {@code maxBytes}.
+     * 
+     * @param maxBytes The maximum size of the cached embeddings in bytes.
+     * @return The cache.
+     */
+    static EmbeddingsCache inMemory(long maxBytes) {
+        return new LruEmbeddingsCache(maxBytes, null);
+    }
+
+    /**
+     * Create an in-memory cache backed by a memory-mapped file, so that a
+     * restarted process starts with the embeddings of the previous run.
+     * 
+     * @param maxBytes The maximum size of the in-memory embeddings in bytes.
+     * @param path     The path of the file.
+     * @param capacity The size of the file in bytes. Once full, embeddings are
+     *                 only cached in memory.
+     * @return The cache.
+     * @throws IOException If the file could not be opened.
+     */
+    static EmbeddingsCache persistent(long maxBytes, Path path, long capacity) throws IOException {
+        return new LruEmbeddingsCache(maxBytes, MappedEmbeddingsStore.open(path, capacity));
+    }
+
+    /**
+     * Get the cached embedding.
+     * 
+     * @param key The key.
+     * @return The embedding or {@code null} if it is not cached.
+     */
+    float[] get(Key key);
+
+    /**
+     * Cache the embedding.
+     * 
+     * @param key       The key.
+     * @param embedding The embedding.
+     */
+    void put(Key key, float[] embedding);
+
+    /**
+     * Get the statistics of the cache.
+     * 
+     * @return The statistics.
+     */
+    CacheStats stats();
+
+    /**
+     * Flush and release the persistent tier, if any.
+     */
+    @Override
+    void close();
+
+    /**
+     * The key of a cached embedding.
+     * 
+     * @param model      The model.
+     * @param promptHash The sha256 of the prompt.
+     * @param options    The options in canonical form, empty if none.
+     * @param normalized   Whether the embedding is normalized, as returned by
+     *                     {@code /api/embed}, rather than as returned by
+     *                     {@code /api/embeddings}.
+     * 
+     * @author Graham Lynch
+     */
+    record Key(String model, String promptHash, String options, boolean normalized) {
+
+        public Key {
+            Objects.requireNonNull(model, "model cannot be null");
+            Objects.requireNonNull(promptHash, "promptHash cannot be null");
+            Objects.requireNonNull(options, "options cannot be null");
+        }
+
+        /**
+         * Create the key of an embedding as returned by {@code /api/embeddings}.
+         * 
+         * @param model      The model.
+         * @param promptHash The sha256 of the prompt.
+         * @param options    The options in canonical form, empty if none.
+         */
+        public Key(String model, String promptHash, String options) {
+            this(model, promptHash, options, false);
+        }
+
+        /**
+         * Create the key of an {@code /api/embeddings} request. Options are
+         * sorted by key, so the order in which they were set does not matter.
+         * 
+         * @param model   The model.
+         * @param prompt  The prompt.
+         * @param options The options, may be {@code null}.
+         * @return The key.
+         */
+        public static Key of(String model, String prompt, Options options) {
+            return of(model, prompt, options, false);
+        }
+
+        /**
+         * Create the key of an embeddings request.
+         * 
+         * @param model      The model.
+         * @param prompt     The prompt.
+         * @param options    The options, may be {@code null}.
+         * @param normalized Whether the embedding is normalized, as returned by
+         *                   {@code /api/embed}.
+         * @return The key.
+         */
+        public static Key of(String model, String prompt, Options options, boolean normalized) {
+            Objects.requireNonNull(model, "model cannot be null");
+            Objects.requireNonNull(prompt, "prompt cannot be null");
+            String canonical = options == null ? ""
+                    : options.entrySet().stream()
+                            .sorted(Comparator.comparing(entry -> entry.getKey().getValue()))
+                            .map(entry -> entry.getKey().getValue() + "=" + entry.getValue())
+                            .collect(Collectors.joining(","));
+            return new Key(model, DigestUtils.sha256hex(prompt.getBytes(StandardCharsets.UTF_8)), canonical,
+                    normalized);
+        }
+
+        /**
+         * The sha256 of the whole key, used to identify the embedding on disk.
+         * 
+         * @return The digest.
+         */
+        byte[] digest() {
+            // keys of /api/embeddings keep the digest they had before normalized keys existed
+            String key = model + '\0' + promptHash + '\0' + options + (normalized ? "\0normalized" : "");
+            return DigestUtils.sha256(key.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.glynch.jollama.embeddings.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An {@link EmbeddingsCache} that keeps the most recently used embeddings in
+ * memory up to a size in bytes, optionally backed by a
+ * {@link MappedEmbeddingsStore}.
+ * 
+ * <p>
+ * Embeddings are held as {@code float[]} and returned without copying, they
+ * must not be modified.
+ * </p>
+ * 
+ * @author Graham Lynch
+ */
+public class LruEmbeddingsCache implements EmbeddingsCache {
+
+    // array header, map node and key strings
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final MappedEmbeddingsStore store;
+    private final LinkedHashMap<Key, float[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long diskHits;
+    private long evictions;
+
+    /**
+     * Create a cache.
+     * 
+     * @param maxBytes The maximum size of the in-memory embeddings in bytes.
+     * @param store    The persistent tier, may be {@code null}.
+     */
+    public LruEmbeddingsCache(long maxBytes, MappedEmbeddingsStore store) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes cannot be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.store = store;
+    }
+
+    private static long weight(Key key, float[] embedding) {
+        return ENTRY_OVERHEAD + 4L * embedding.length
+                + 2L * (key.model().length() + key.promptHash().length() + key.options().length());
+    }
+
+    @Override
+    public float[] get(Key key) {
+        Objects.requireNonNull(key, "key cannot be null");
+        synchronized (this) {
+            float[] embedding = entries.get(key);
+            if (embedding != null) {
+                hits++;
+                return embedding;
+            }
+            if (store == null) {
+                misses++;
+                return null;
+            }
+        }
+        float[] embedding = store.get(key.digest());
+        synchronized (this) {
+            if (embedding == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            diskHits++;
+            insert(key, embedding);
+            return embedding;
+        }
+    }
+
+    @Override
+    public void put(Key key, float[] embedding) {
+        Objects.requireNonNull(key, "key cannot be null");
+        Objects.requireNonNull(embedding, "embedding cannot be null");
+        float[] copy = embedding.clone();
+        synchronized (this) {
+            insert(key, copy);
+        }
+        if (store != null) {
+            store.put(key.digest(), copy);
+        }
+    }
+
+    private void insert(Key key, float[] embedding) {
+        long weight = weight(key, embedding);
+        if (weight > maxBytes) {
+            return;
+        }
+        float[] previous = entries.put(key, embedding);
+        if (previous != null) {
+            bytes -= weight(key, previous);
+        }
+        bytes += weight;
+        Iterator<Map.Entry<Key, float[]>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, float[]> eldest = iterator.next();
+            iterator.remove();
+            bytes -= weight(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, diskHits, evictions, entries.size(), bytes,
+                store != null ? store.size() : 0);
+    }
+
+    @Override
+    public void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+}
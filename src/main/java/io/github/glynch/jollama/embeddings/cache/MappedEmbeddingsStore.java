@@ -0,0 +1,179 @@
+package io.github.glynch.jollama.embeddings.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only store of embeddings in a memory-mapped file of fixed
+ * capacity.
+ * 
+ * <p>
+ * The file starts with a header holding the end of the last complete record,
+ * followed by records of a 32 byte key digest, the number of dimensions and
+ * the dimensions as floats. The index of digests to offsets is rebuilt by
+ * scanning the records when the file is opened. Once the file is full, new
+ * embeddings are not stored.
+ * </p>
+ * 
+ * @author Graham Lynch
+ */
+public class MappedEmbeddingsStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x4A4F4543;
+    private static final int VERSION = 1;
+    private static final int END_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int DIGEST_SIZE = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Map<ByteBuffer, Integer> index = new ConcurrentHashMap<>();
+    private int end;
+
+    private MappedEmbeddingsStore(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            reset();
+        } else {
+            scan();
+        }
+    }
+
+    /**
+     * Open the store, creating the file if it does not exist.
+     * 
+     * @param path     The path of the file.
+     * @param capacity The size of the file in bytes, at most 2GB.
+     * @return The store.
+     * @throws IOException If the file could not be opened or mapped.
+     */
+    public static MappedEmbeddingsStore open(Path path, long capacity) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        if (capacity < HEADER_SIZE || capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity must be between " + HEADER_SIZE + " and "
+                    + Integer.MAX_VALUE);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new MappedEmbeddingsStore(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void reset() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        end = HEADER_SIZE;
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    private void scan() {
+        // a file written with a larger capacity, or a corrupt header, may
+        // claim records beyond the mapping
+        long committed = Math.min(buffer.getLong(END_OFFSET), buffer.capacity());
+        int position = HEADER_SIZE;
+        while (position + DIGEST_SIZE + 4 <= committed) {
+            int dimensions = buffer.getInt(position + DIGEST_SIZE);
+            long next = position + DIGEST_SIZE + 4 + 4L * dimensions;
+            if (dimensions < 0 || next > committed) {
+                break;
+            }
+            index.put(digest(position), position);
+            position = (int) next;
+        }
+        end = position;
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    private ByteBuffer digest(int position) {
+        byte[] digest = new byte[DIGEST_SIZE];
+        buffer.get(position, digest);
+        return ByteBuffer.wrap(digest);
+    }
+
+    /**
+     * Get an embedding.
+     * 
+     * @param digest The digest of the key.
+     * @return The embedding or {@code null} if it is not stored.
+     */
+    public float[] get(byte[] digest) {
+        Integer position = index.get(ByteBuffer.wrap(digest));
+        if (position == null) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        int dimensions = view.getInt(position + DIGEST_SIZE);
+        float[] embedding = new float[dimensions];
+        view.position(position + DIGEST_SIZE + 4);
+        view.asFloatBuffer().get(embedding);
+        return embedding;
+    }
+
+    /**
+     * Append an embedding, unless it is already stored or the file is full.
+     * 
+     * @param digest    The digest of the key.
+     * @param embedding The embedding.
+     * @return {@code true} if the embedding is stored.
+     */
+    public synchronized boolean put(byte[] digest, float[] embedding) {
+        if (digest.length != DIGEST_SIZE) {
+            throw new IllegalArgumentException("digest must be " + DIGEST_SIZE + " bytes");
+        }
+        ByteBuffer key = ByteBuffer.wrap(digest.clone());
+        if (index.containsKey(key)) {
+            return true;
+        }
+        long size = DIGEST_SIZE + 4 + 4L * embedding.length;
+        if (end + size > buffer.capacity()) {
+            return false;
+        }
+        int position = end;
+        buffer.put(position, digest);
+        buffer.putInt(position + DIGEST_SIZE, embedding.length);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + DIGEST_SIZE + 4);
+        view.asFloatBuffer().put(embedding);
+        end = (int) (position + size);
+        // the header is only moved past the record once it is complete
+        buffer.putLong(END_OFFSET, end);
+        index.put(key, position);
+        return true;
+    }
+
+    /**
+     * The number of stored embeddings.
+     * 
+     * @return The number of embeddings.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Flush the file to disk and close it.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.github.glynch.jollama.client.JOllamaClient;
+import io.github.glynch.jollama.client.JOllamaClientException;
+
+/**
+ * Embeds text with a {@link JOllamaClient} and keeps the embeddings in a
+ * {@link VectorIndex}.
+ * 
+ * <pre>
+ * EmbeddingsIndex index = new EmbeddingsIndex(client, "nomic-embed-text", new HnswIndex(768));
+ * index.add("sky", "The sky is blue because of Rayleigh scattering.");
+ * index.add("grass", "Grass is green because of chlorophyll.");
+ * List&lt;SearchResult&gt; results = index.search("Why is the sky blue?", 1);
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+public class EmbeddingsIndex {
+
+    private final JOllamaClient client;
+    private final String model;
+    private final VectorIndex index;
+
+    /**
+     * Create an index.
+     * 
+     * @param client The client used to embed text.
+     * @param model  The embedding model.
+     * @param index  The index of the embeddings. Its dimensions must match the
+     *               model.
+     */
+    public EmbeddingsIndex(JOllamaClient client, String model, VectorIndex index) {
+        this.client = Objects.requireNonNull(client, "client cannot be null");
+        this.model = Objects.requireNonNull(model, "model cannot be null");
+        this.index = Objects.requireNonNull(index, "index cannot be null");
+    }
+
+    /**
+     * Embed the text and add it to the index.
+     * 
+     * @param id   The id returned by searches.
+     * @param text The text.
+     * @throws JOllamaClientException If the text could not be embedded.
+     */
+    public void add(String id, String text) throws JOllamaClientException {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(text, "text cannot be null");
+        index.add(id, client.embeddings(model, text).get().vector());
+    }
+
+    /**
+     * Embed every text with a single batch embeddings request and add them to
+     * the index.
+     * 
+     * @param texts The texts by id.
+     * @throws JOllamaClientException If the texts could not be embedded.
+     */
+    public void addAll(Map<String, String> texts) throws JOllamaClientException {
+        Objects.requireNonNull(texts, "texts cannot be null");
+        List<String> ids = new ArrayList<>(texts.keySet());
+        List<String> prompts = ids.stream().map(texts::get).toList();
+        float[][] embeddings = client.embeddings(model, prompts).get();
+        for (int i = 0; i < embeddings.length; i++) {
+            index.add(ids.get(i), embeddings[i]);
+        }
+    }
+
+    /**
+     * Find the texts most similar to the query.
+     * 
+     * @param text The query.
+     * @param k    The maximum number of results.
+     * @return The matches, most similar first.
+     * @throws JOllamaClientException If the query could not be embedded.
+     */
+    public List<SearchResult> search(String text, int k) throws JOllamaClientException {
+        Objects.requireNonNull(text, "text cannot be null");
+        return index.search(client.embeddings(model, text).get().vector(), k);
+    }
+
+    /**
+     * Get the underlying index.
+     * 
+     * @return The index.
+     */
+    public VectorIndex index() {
+        return index;
+    }
+
+}
@@ -0,0 +1,129 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link VectorIndex} that compares the query with every vector.
+ * 
+ * <p>
+ * Vectors are stored off-heap, in buffers of up to 1GB. Searches are exact and,
+ * for large indexes, split across the cores of the common fork join pool. Use
+ * it up to a few hundred thousand vectors, or to check the recall of an
+ * {@link HnswIndex}.
+ * </p>
+ * 
+ * <pre>
+ * VectorIndex index = new FlatIndex(768);
+ * index.add("sky", client.embeddings("nomic-embed-text", "The sky is blue").get().vector());
+ * List&lt;SearchResult&gt; results = index.search(client.embeddings("nomic-embed-text", "Why is the sky blue?")
+ *         .get().vector(), 5);
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+public class FlatIndex implements VectorIndex {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final OffHeapVectors vectors;
+    private final List<String> ids = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Create an index.
+     * 
+     * @param dimensions The number of dimensions of the vectors.
+     */
+    public FlatIndex(int dimensions) {
+        this.vectors = new OffHeapVectors(dimensions);
+    }
+
+    @Override
+    public void add(String id, float[] vector) {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(vector, "vector cannot be null");
+        float[] normalized = vectors.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            vectors.add(normalized);
+            ids.add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int k) {
+        Objects.requireNonNull(query, "query cannot be null");
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        float[] normalized = vectors.normalize(query);
+        lock.readLock().lock();
+        try {
+            int size = vectors.size();
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            ScoredHeap top;
+            if (chunks <= 1) {
+                top = scan(normalized, 0, size, k);
+            } else {
+                top = IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> scan(normalized, chunk * CHUNK_SIZE,
+                                Math.min(size, (chunk + 1) * CHUNK_SIZE), k))
+                        .reduce((a, b) -> merge(a, b, k))
+                        .orElseGet(() -> new ScoredHeap(k, false));
+            }
+            return results(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ScoredHeap scan(float[] query, int from, int to, int k) {
+        ScoredHeap top = new ScoredHeap(k, false);
+        for (int row = from; row < to; row++) {
+            top.offer(row, vectors.dot(row, query), k);
+        }
+        return top;
+    }
+
+    private static ScoredHeap merge(ScoredHeap a, ScoredHeap b, int k) {
+        while (!b.isEmpty()) {
+            a.offer(b.peekRow(), b.peekScore(), k);
+            b.pop();
+        }
+        return a;
+    }
+
+    private List<SearchResult> results(ScoredHeap top) {
+        List<SearchResult> results = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            results.add(new SearchResult(ids.get(top.peekRow()), top.peekScore()));
+            top.pop();
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return vectors.dimensions();
+    }
+
+}
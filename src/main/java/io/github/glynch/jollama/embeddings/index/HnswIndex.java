@@ -0,0 +1,348 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An approximate {@link VectorIndex} based on a hierarchical navigable small
+ * world graph (HNSW).
+ * 
+ * <p>
+ * Searches visit a small part of the index, so they stay fast for millions of
+ * vectors at the cost of occasionally missing a match. Increase
+ * {@code efSearch} to trade speed for recall. Vectors are stored off-heap like
+ * in a {@link FlatIndex}, the graph is kept on the heap.
+ * </p>
+ * 
+ * <pre>
+ * VectorIndex index = HnswIndex.builder(768).m(16).efConstruction(200).efSearch(64).build();
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+public class HnswIndex implements VectorIndex {
+
+    private final OffHeapVectors vectors;
+    private final List<String> ids = new ArrayList<>();
+    // links[node][level] holds the number of neighbours followed by the neighbours
+    private final List<int[][]> links = new ArrayList<>();
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private HnswIndex(Builder builder) {
+        this.vectors = new OffHeapVectors(builder.dimensions);
+        this.m = builder.m;
+        this.maxM0 = builder.m * 2;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.levelMultiplier = 1 / Math.log(builder.m);
+        this.random = new SplittableRandom(builder.seed);
+    }
+
+    /**
+     * Create an index with the default parameters.
+     * 
+     * @param dimensions The number of dimensions of the vectors.
+     */
+    public HnswIndex(int dimensions) {
+        this(builder(dimensions));
+    }
+
+    /**
+     * Obtain a builder for an index.
+     * 
+     * @param dimensions The number of dimensions of the vectors.
+     * @return The builder.
+     */
+    public static Builder builder(int dimensions) {
+        return new Builder(dimensions);
+    }
+
+    @Override
+    public void add(String id, float[] vector) {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(vector, "vector cannot be null");
+        float[] normalized = vectors.normalize(vector);
+        lock.writeLock().lock();
+        try {
+            insert(id, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String id, float[] vector) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int node = vectors.add(vector);
+        ids.add(id);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[1 + (l == 0 ? maxM0 : m)];
+        }
+        links.add(nodeLinks);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            ScoredHeap candidates = searchLayer(vector, current, efConstruction, l);
+            int[] neighbours = best(candidates, m);
+            for (int neighbour : neighbours) {
+                connect(node, neighbour, l);
+                connect(neighbour, node, l);
+            }
+            current = neighbours[0];
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private void connect(int node, int neighbour, int level) {
+        int[] nodeLinks = links.get(node)[level];
+        int count = nodeLinks[0];
+        if (count < nodeLinks.length - 1) {
+            nodeLinks[++count] = neighbour;
+            nodeLinks[0] = count;
+            return;
+        }
+        // full, keep the closest neighbours
+        ScoredHeap closest = new ScoredHeap(count + 1, false);
+        closest.offer(neighbour, vectors.dot(node, neighbour), count);
+        for (int i = 1; i <= count; i++) {
+            closest.offer(nodeLinks[i], vectors.dot(node, nodeLinks[i]), count);
+        }
+        int i = 1;
+        while (!closest.isEmpty()) {
+            nodeLinks[i++] = closest.peekRow();
+            closest.pop();
+        }
+    }
+
+    /**
+     * The closest rows of a min heap, closest first.
+     */
+    private static int[] best(ScoredHeap candidates, int count) {
+        while (candidates.size() > count) {
+            candidates.pop();
+        }
+        int[] best = new int[candidates.size()];
+        for (int i = best.length - 1; i >= 0; i--) {
+            best[i] = candidates.peekRow();
+            candidates.pop();
+        }
+        return best;
+    }
+
+    private int greedy(float[] query, int entry, int level) {
+        int current = entry;
+        float score = vectors.dot(current, query);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] nodeLinks = links.get(current)[level];
+            for (int i = 1; i <= nodeLinks[0]; i++) {
+                float candidate = vectors.dot(nodeLinks[i], query);
+                if (candidate > score) {
+                    score = candidate;
+                    current = nodeLinks[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Search a layer from the entry point.
+     * 
+     * @return A min heap of the {@code ef} closest rows found.
+     */
+    private ScoredHeap searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        ScoredHeap candidates = new ScoredHeap(ef, true);
+        ScoredHeap results = new ScoredHeap(ef, false);
+        float score = vectors.dot(entry, query);
+        visited.set(entry);
+        candidates.push(entry, score);
+        results.push(entry, score);
+        while (!candidates.isEmpty()) {
+            int current = candidates.peekRow();
+            float currentScore = candidates.peekScore();
+            candidates.pop();
+            if (results.size() >= ef && currentScore < results.peekScore()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(current);
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float neighbourScore = vectors.dot(neighbour, query);
+                if (results.size() < ef || neighbourScore > results.peekScore()) {
+                    candidates.push(neighbour, neighbourScore);
+                    results.offer(neighbour, neighbourScore, ef);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int k) {
+        Objects.requireNonNull(query, "query cannot be null");
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        float[] normalized = vectors.normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedy(normalized, current, l);
+            }
+            ScoredHeap top = searchLayer(normalized, current, Math.max(efSearch, k), 0);
+            while (top.size() > k) {
+                top.pop();
+            }
+            List<SearchResult> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(new SearchResult(ids.get(top.peekRow()), top.peekScore()));
+                top.pop();
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return vectors.dimensions();
+    }
+
+    @Override
+    public String toString() {
+        return "HnswIndex [size=" + size() + ", m=" + m + ", efConstruction=" + efConstruction + ", efSearch="
+                + efSearch + ", levels=" + (maxLevel + 1) + "]";
+    }
+
+    /**
+     * A builder for a {@link HnswIndex}.
+     */
+    public static class Builder {
+
+        private final int dimensions;
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private long seed = 42;
+
+        private Builder(int dimensions) {
+            if (dimensions < 1) {
+                throw new IllegalArgumentException("dimensions must be at least 1");
+            }
+            this.dimensions = dimensions;
+        }
+
+        /**
+         * The number of neighbours of each vector. Defaults to 16.
+         * 
+         * @param m The number of neighbours.
+         * @return This builder.
+         */
+        public Builder m(int m) {
+            if (m < 2) {
+                throw new IllegalArgumentException("m must be at least 2");
+            }
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * The number of candidates considered when adding a vector. Defaults
+         * to 200.
+         * 
+         * @param efConstruction The number of candidates.
+         * @return This builder.
+         */
+        public Builder efConstruction(int efConstruction) {
+            if (efConstruction < 1) {
+                throw new IllegalArgumentException("efConstruction must be at least 1");
+            }
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * The number of candidates considered by a search. Defaults to 64.
+         * 
+         * @param efSearch The number of candidates.
+         * @return This builder.
+         */
+        public Builder efSearch(int efSearch) {
+            if (efSearch < 1) {
+                throw new IllegalArgumentException("efSearch must be at least 1");
+            }
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        /**
+         * The seed of the random levels of the graph, for reproducible
+         * indexes.
+         * 
+         * @param seed The seed.
+         * @return This builder.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public HnswIndex build() {
+            return new HnswIndex(this);
+        }
+
+    }
+
+}
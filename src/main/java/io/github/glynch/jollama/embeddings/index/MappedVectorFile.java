@@ -0,0 +1,104 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full precision vectors in a file mapped in segments of about 1GB, so they are
+ * paged in by the operating system instead of held on the heap. The last
+ * segment is mapped from 1024 rows and remapped at twice the size when full,
+ * so a small index keeps a small file.
+ * 
+ * <p>
+ * Not thread safe for writes, callers guard them.
+ * </p>
+ */
+final class MappedVectorFile implements AutoCloseable {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private final int rowsPerSegment;
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private final List<MappedByteBuffer> mappings = new ArrayList<>();
+    private int mappedRows;
+
+    MappedVectorFile(Path path, int dimensions) throws IOException {
+        this(path, dimensions, SEGMENT_BYTES);
+    }
+
+    MappedVectorFile(Path path, int dimensions, long segmentBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.dimensions = dimensions;
+        this.rowsPerSegment = (int) Math.max(1, segmentBytes / (4L * dimensions));
+    }
+
+    void put(int row, float[] vector) {
+        int segment = row / rowsPerSegment;
+        int offset = row % rowsPerSegment;
+        while (segments.size() <= segment) {
+            if (!segments.isEmpty() && mappedRows < rowsPerSegment) {
+                map(segments.size() - 1, rowsPerSegment);
+            } else {
+                map(segments.size(), Math.min(INITIAL_ROWS, rowsPerSegment));
+            }
+        }
+        if (offset >= mappedRows) {
+            map(segment, (int) Math.min(rowsPerSegment, Math.max(offset + 1L, 2L * mappedRows)));
+        }
+        segments.get(segment).put(offset * dimensions, vector);
+    }
+
+    /**
+     * Map the first {@code rows} of a segment, replacing the mapping of the
+     * last segment when it grows.
+     */
+    private void map(int segment, int rows) {
+        long position = 4L * dimensions * rowsPerSegment * segment;
+        try {
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, position, 4L * dimensions * rows);
+            FloatBuffer floats = mapping.order(ByteOrder.nativeOrder()).asFloatBuffer();
+            if (segment < segments.size()) {
+                mappings.set(segment, mapping);
+                segments.set(segment, floats);
+            } else {
+                mappings.add(mapping);
+                segments.add(floats);
+            }
+            mappedRows = rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    float dot(int row, float[] query) {
+        FloatBuffer segment = segments.get(row / rowsPerSegment);
+        int base = (row % rowsPerSegment) * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segment.get(base + i) * query[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalized vectors stored row after row in direct buffers of at most 1GB,
+ * outside of the Java heap.
+ * 
+ * <p>
+ * Not thread safe, callers guard writes. The first buffer grows by doubling
+ * until it is full, later rows go in new buffers, so the number of vectors is
+ * only bounded by direct memory and {@code Integer.MAX_VALUE} rows.
+ * </p>
+ */
+final class OffHeapVectors {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final int dimensions;
+    private final int rowsPerSegment;
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private int size;
+
+    OffHeapVectors(int dimensions) {
+        this(dimensions, SEGMENT_BYTES);
+    }
+
+    OffHeapVectors(int dimensions, long segmentBytes) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions must be at least 1");
+        }
+        this.dimensions = dimensions;
+        this.rowsPerSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE, segmentBytes / ((long) Float.BYTES
+                * dimensions)));
+        segments.add(allocate(Math.min(INITIAL_CAPACITY, rowsPerSegment)));
+    }
+
+    private FloatBuffer allocate(int rows) {
+        return ByteBuffer.allocateDirect(Math.multiplyExact(Math.multiplyExact(rows, dimensions), Float.BYTES))
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Normalize a copy of the vector.
+     */
+    float[] normalize(float[] vector) {
+        return normalize(vector, dimensions);
+    }
+
+    static float[] normalize(float[] vector, int dimensions) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions but was " + vector.length);
+        }
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        double norm = Math.sqrt(sum);
+        float[] normalized = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            normalized[i] = norm == 0 ? 0 : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    /**
+     * Append a normalized vector.
+     * 
+     * @return The row of the vector.
+     */
+    int add(float[] normalized) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("index is full");
+        }
+        int segment = size / rowsPerSegment;
+        int offset = (size % rowsPerSegment) * dimensions;
+        if (segment == segments.size()) {
+            segments.add(allocate(rowsPerSegment));
+        } else if (offset == segments.get(segment).capacity()) {
+            FloatBuffer data = segments.get(segment);
+            FloatBuffer grown = allocate((int) Math.min(rowsPerSegment, 2L * data.capacity() / dimensions));
+            grown.put(0, data, 0, data.capacity());
+            segments.set(segment, grown);
+        }
+        segments.get(segment).put(offset, normalized);
+        return size++;
+    }
+
+    /**
+     * The dot product of the row with a normalized query, i.e. their cosine
+     * similarity.
+     */
+    float dot(int row, float[] query) {
+        FloatBuffer data = segments.get(row / rowsPerSegment);
+        int base = (row % rowsPerSegment) * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += data.get(base + i) * query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * The dot product of two rows.
+     */
+    float dot(int row, int other) {
+        FloatBuffer data = segments.get(row / rowsPerSegment);
+        FloatBuffer otherData = segments.get(other / rowsPerSegment);
+        int base = (row % rowsPerSegment) * dimensions;
+        int otherBase = (other % rowsPerSegment) * dimensions;
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += data.get(base + i) * otherData.get(otherBase + i);
+        }
+        return sum;
+    }
+
+}
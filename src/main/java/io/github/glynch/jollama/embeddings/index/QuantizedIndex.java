@@ -0,0 +1,327 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link VectorIndex} that searches quantized vectors and re-ranks the best
+ * candidates at full precision.
+ * 
+ * <p>
+ * Only the quantized vectors are kept in memory, off-heap: one byte per
+ * dimension plus a scale and offset with {@link Encoding#INT8}, about a
+ * quarter of the float vectors, or one bit per dimension with
+ * {@link Encoding#BINARY}. The normalized full precision vectors are written to
+ * a memory-mapped file and only read to re-rank the
+ * {@code k * oversample} best candidates of the quantized search.
+ * </p>
+ * 
+ * <pre>
+ * try (QuantizedIndex index = QuantizedIndex.builder(768, Path.of("vectors.f32")).build()) {
+ *     index.add("sky", client.embeddings("nomic-embed-text", "The sky is blue").get().vector());
+ *     List&lt;SearchResult&gt; results = index.search(query, 10);
+ * }
+ * </pre>
+ * 
+ * @author Graham Lynch
+ */
+public class QuantizedIndex implements VectorIndex, AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CHUNK_SIZE = 16384;
+
+    /**
+     * The encoding of the vectors held in memory.
+     */
+    public enum Encoding {
+        /**
+         * One byte per dimension with a per vector scale and offset.
+         */
+        INT8,
+        /**
+         * One bit per dimension, the sign.
+         */
+        BINARY
+    }
+
+    private final int dimensions;
+    private final Encoding encoding;
+    private final int oversample;
+    private final int words;
+    private final MappedVectorFile full;
+    private final List<String> ids = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer codes;
+    private LongBuffer bits;
+    private float[] scales;
+    private float[] offsets;
+    private int capacity = INITIAL_CAPACITY;
+    private int size;
+
+    private QuantizedIndex(Builder builder) throws IOException {
+        this.dimensions = builder.dimensions;
+        this.encoding = builder.encoding;
+        this.oversample = builder.oversample;
+        this.words = (dimensions + 63) / 64;
+        this.full = new MappedVectorFile(builder.path, dimensions);
+        if (encoding == Encoding.INT8) {
+            codes = ByteBuffer.allocateDirect(INITIAL_CAPACITY * dimensions);
+            scales = new float[INITIAL_CAPACITY];
+            offsets = new float[INITIAL_CAPACITY];
+        } else {
+            bits = allocateBits(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * Obtain a builder for an index.
+     * 
+     * @param dimensions The number of dimensions of the vectors.
+     * @param path       The file of the full precision vectors. It is
+     *                   overwritten.
+     * @return The builder.
+     */
+    public static Builder builder(int dimensions, Path path) {
+        return new Builder(dimensions, path);
+    }
+
+    private LongBuffer allocateBits(int rows) {
+        return ByteBuffer.allocateDirect(rows * words * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    @Override
+    public void add(String id, float[] vector) {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(vector, "vector cannot be null");
+        float[] normalized = OffHeapVectors.normalize(vector, dimensions);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            if (encoding == Encoding.INT8) {
+                QuantizedVector quantized = ScalarQuantizer.quantize(normalized);
+                codes.put(size * dimensions, quantized.codes());
+                scales[size] = quantized.scale();
+                offsets[size] = quantized.offset();
+            } else {
+                bits.put(size * words, ScalarQuantizer.binarize(normalized));
+            }
+            full.put(size, normalized);
+            ids.add(id);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= this.capacity) {
+            return;
+        }
+        int capacity = (int) Math.min(Math.max(rows, this.capacity * 2L), Integer.MAX_VALUE / dimensions);
+        if (capacity < rows) {
+            throw new IllegalStateException("index is full");
+        }
+        if (encoding == Encoding.INT8) {
+            scales = Arrays.copyOf(scales, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity * dimensions);
+            grown.put(0, codes, 0, size * dimensions);
+            codes = grown;
+        } else {
+            LongBuffer grown = allocateBits(capacity);
+            grown.put(0, bits, 0, size * words);
+            bits = grown;
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public List<SearchResult> search(float[] query, int k) {
+        Objects.requireNonNull(query, "query cannot be null");
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        float[] normalized = OffHeapVectors.normalize(query, dimensions);
+        float sum = 0;
+        for (float value : normalized) {
+            sum += value;
+        }
+        float querySum = sum;
+        long[] queryBits = ScalarQuantizer.binarize(normalized);
+        int candidates = (int) Math.min(Integer.MAX_VALUE, (long) k * oversample);
+        lock.readLock().lock();
+        try {
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            ScoredHeap approximate = IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> scan(normalized, querySum, queryBits, chunk * CHUNK_SIZE,
+                            Math.min(size, (chunk + 1) * CHUNK_SIZE), candidates))
+                    .reduce((a, b) -> merge(a, b, candidates))
+                    .orElseGet(() -> new ScoredHeap(1, false));
+            ScoredHeap top = new ScoredHeap(k, false);
+            while (!approximate.isEmpty()) {
+                int row = approximate.peekRow();
+                approximate.pop();
+                top.offer(row, full.dot(row, normalized), k);
+            }
+            List<SearchResult> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(new SearchResult(ids.get(top.peekRow()), top.peekScore()));
+                top.pop();
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ScoredHeap scan(float[] query, float querySum, long[] queryBits, int from, int to, int candidates) {
+        ScoredHeap top = new ScoredHeap(candidates, false);
+        for (int row = from; row < to; row++) {
+            top.offer(row, encoding == Encoding.INT8 ? int8(row, query, querySum) : -binary(row, queryBits),
+                    candidates);
+        }
+        return top;
+    }
+
+    private float int8(int row, float[] query, float querySum) {
+        ByteBuffer codes = this.codes;
+        int base = row * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += (codes.get(base + i) & 0xFF) * query[i];
+        }
+        return offsets[row] * querySum + scales[row] * dot;
+    }
+
+    private int binary(int row, long[] query) {
+        LongBuffer bits = this.bits;
+        int base = row * words;
+        int distance = 0;
+        for (int i = 0; i < words; i++) {
+            distance += Long.bitCount(bits.get(base + i) ^ query[i]);
+        }
+        return distance;
+    }
+
+    private static ScoredHeap merge(ScoredHeap a, ScoredHeap b, int k) {
+        while (!b.isEmpty()) {
+            a.offer(b.peekRow(), b.peekScore(), k);
+            b.pop();
+        }
+        return a;
+    }
+
+    /**
+     * Get the memory held by the quantized vectors, excluding the mapped
+     * file.
+     * 
+     * @return The size in bytes.
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return encoding == Encoding.INT8 ? (long) size * (dimensions + 2 * Float.BYTES)
+                    : (long) size * words * Long.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Close the file of the full precision vectors.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            full.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A builder for a {@link QuantizedIndex}.
+     */
+    public static class Builder {
+
+        private final int dimensions;
+        private final Path path;
+        private Encoding encoding = Encoding.INT8;
+        private int oversample = 4;
+
+        private Builder(int dimensions, Path path) {
+            if (dimensions < 1) {
+                throw new IllegalArgumentException("dimensions must be at least 1");
+            }
+            this.dimensions = dimensions;
+            this.path = Objects.requireNonNull(path, "path cannot be null");
+        }
+
+        /**
+         * The encoding of the vectors in memory. Defaults to
+         * {@link Encoding#INT8}.
+         * 
+         * @param encoding The encoding.
+         * @return This builder.
+         */
+        public Builder encoding(Encoding encoding) {
+            this.encoding = Objects.requireNonNull(encoding, "encoding cannot be null");
+            return this;
+        }
+
+        /**
+         * The number of candidates re-ranked at full precision per result.
+         * Defaults to 4, binary encoding usually needs 10 or more.
+         * 
+         * @param oversample The number of candidates per result.
+         * @return This builder.
+         */
+        public Builder oversample(int oversample) {
+            if (oversample < 1) {
+                throw new IllegalArgumentException("oversample must be at least 1");
+            }
+            this.oversample = oversample;
+            return this;
+        }
+
+        /**
+         * Build the index.
+         * 
+         * @return The index.
+         * @throws IOException If the file could not be created.
+         */
+        public QuantizedIndex build() throws IOException {
+            return new QuantizedIndex(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.github.glynch.jollama.embeddings.index;
+
+/**
+ * A vector quantized to one unsigned byte per dimension, see
+ * {@link ScalarQuantizer}.
+ * 
+ * @param codes  The codes, to be read as unsigned bytes.
+ * @param scale  The scale of a code.
+ * @param offset The value of the code {@code 0}.
+ * 
+ * @author Graham Lynch
+ */
+public record QuantizedVector(byte[] codes, float scale, float offset) {
+}
@@ -0,0 +1,100 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.Objects;
+
+/**
+ * Int8 and binary quantization of vectors.
+ * 
+ * <p>
+ * Int8 quantization maps the range of each vector onto 256 levels, with a
+ * per-vector scale and offset, so that dimension {@code i} is approximately
+ * {@code offset + scale * (codes[i] & 0xFF)}. Binary quantization keeps only
+ * the sign of each dimension, one bit per dimension.
+ * </p>
+ * 
+ * @author Graham Lynch
+ */
+public final class ScalarQuantizer {
+
+    private static final int LEVELS = 255;
+
+    private ScalarQuantizer() {
+    }
+
+    /**
+     * Quantize a vector to one byte per dimension.
+     * 
+     * @param vector The vector.
+     * @return The quantized vector.
+     */
+    public static QuantizedVector quantize(float[] vector) {
+        Objects.requireNonNull(vector, "vector cannot be null");
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : vector) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        if (vector.length == 0) {
+            return new QuantizedVector(new byte[0], 0, 0);
+        }
+        float scale = max > min ? (max - min) / LEVELS : 0;
+        byte[] codes = new byte[vector.length];
+        if (scale > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                codes[i] = (byte) Math.round((vector[i] - min) / scale);
+            }
+        }
+        return new QuantizedVector(codes, scale, min);
+    }
+
+    /**
+     * Restore an approximation of a quantized vector.
+     * 
+     * @param vector The quantized vector.
+     * @return The approximate vector.
+     */
+    public static float[] dequantize(QuantizedVector vector) {
+        Objects.requireNonNull(vector, "vector cannot be null");
+        byte[] codes = vector.codes();
+        float[] values = new float[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = vector.offset() + vector.scale() * (codes[i] & 0xFF);
+        }
+        return values;
+    }
+
+    /**
+     * Quantize a vector to the sign of each dimension.
+     * 
+     * @param vector The vector.
+     * @return The bits, dimension {@code i} is bit {@code i % 64} of word
+     *         {@code i / 64}.
+     */
+    public static long[] binarize(float[] vector) {
+        Objects.requireNonNull(vector, "vector cannot be null");
+        long[] bits = new long[(vector.length + 63) / 64];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * The number of dimensions whose sign differs.
+     * 
+     * @param a The first binarized vector.
+     * @param b The second binarized vector.
+     * @return The hamming distance.
+     */
+    public static int hamming(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+
+}
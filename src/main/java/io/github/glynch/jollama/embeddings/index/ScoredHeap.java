@@ -0,0 +1,98 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of rows and their scores, without boxing.
+ */
+final class ScoredHeap {
+
+    private final boolean max;
+    private int[] rows;
+    private float[] scores;
+    private int size;
+
+    /**
+     * @param capacity The initial capacity.
+     * @param max      {@code true} to keep the highest score at the top,
+     *                 {@code false} to keep the lowest.
+     */
+    ScoredHeap(int capacity, boolean max) {
+        this.max = max;
+        this.rows = new int[Math.max(capacity, 1)];
+        this.scores = new float[Math.max(capacity, 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int peekRow() {
+        return rows[0];
+    }
+
+    float peekScore() {
+        return scores[0];
+    }
+
+    private boolean above(float a, float b) {
+        return max ? a > b : a < b;
+    }
+
+    void push(int row, float score) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!above(score, scores[parent])) {
+                break;
+            }
+            rows[i] = rows[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        rows[i] = row;
+        scores[i] = score;
+    }
+
+    void pop() {
+        int row = rows[--size];
+        float score = scores[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && above(scores[child + 1], scores[child])) {
+                child++;
+            }
+            if (!above(scores[child], score)) {
+                break;
+            }
+            rows[i] = rows[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        rows[i] = row;
+        scores[i] = score;
+    }
+
+    /**
+     * Offer a row to a min heap holding the best {@code k} rows.
+     */
+    void offer(int row, float score, int k) {
+        if (size < k) {
+            push(row, score);
+        } else if (score > scores[0]) {
+            pop();
+            push(row, score);
+        }
+    }
+
+}
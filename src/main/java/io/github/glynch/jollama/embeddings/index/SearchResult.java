@@ -0,0 +1,12 @@
+package io.github.glynch.jollama.embeddings.index;
+
+/**
+ * A match of a similarity search.
+ * 
+ * @param id    The id of the vector.
+ * @param score The cosine similarity with the query.
+ * 
+ * @author Graham Lynch
+ */
+public record SearchResult(String id, double score) {
+}
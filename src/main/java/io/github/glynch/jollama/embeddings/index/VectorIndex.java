@@ -0,0 +1,78 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.List;
+
+import io.github.glynch.jollama.embeddings.Vector;
+
+/**
+ * An index of vectors searchable by cosine similarity.
+ * 
+ * <p>
+ * Vectors are normalized when they are added, so the score of a match is its
+ * cosine similarity with the query. Implementations allow concurrent searches
+ * while vectors are added.
+ * </p>
+ * 
+ * @author Graham Lynch
+ * @see FlatIndex
+ * @see HnswIndex
+ */
+public interface VectorIndex {
+
+    /**
+     * Add a vector.
+     * 
+     * @param id     The id returned by searches.
+     * @param vector The vector.
+     * @throws IllegalArgumentException If the dimensions do not match the
+     *                                  index.
+     */
+    void add(String id, float[] vector);
+
+    /**
+     * Add a vector.
+     * 
+     * @param id     The id returned by searches.
+     * @param vector The vector.
+     * @throws IllegalArgumentException If the dimensions do not match the
+     *                                  index.
+     */
+    default void add(String id, Vector vector) {
+        add(id, vector.toArray());
+    }
+
+    /**
+     * Find the vectors most similar to the query.
+     * 
+     * @param query The query.
+     * @param k     The maximum number of results.
+     * @return The matches, most similar first.
+     */
+    List<SearchResult> search(float[] query, int k);
+
+    /**
+     * Find the vectors most similar to the query.
+     * 
+     * @param query The query.
+     * @param k     The maximum number of results.
+     * @return The matches, most similar first.
+     */
+    default List<SearchResult> search(Vector query, int k) {
+        return search(query.toArray(), k);
+    }
+
+    /**
+     * Get the number of vectors.
+     * 
+     * @return The number of vectors.
+     */
+    int size();
+
+    /**
+     * Get the number of dimensions of the vectors.
+     * 
+     * @return The number of dimensions.
+     */
+    int dimensions();
+
+}
@@ -0,0 +1,47 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The progress of an {@link EmbeddingsPipeline}: the number of documents whose
+ * chunks are all in the vector file, and the length of the vector file at that
+ * point.
+ */
+record Checkpoint(long documents, long bytes) {
+
+    static final Checkpoint NONE = new Checkpoint(0, 0);
+
+    static Checkpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return NONE;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return new Checkpoint(Long.parseLong(properties.getProperty("documents", "0")),
+                Long.parseLong(properties.getProperty("bytes", "0")));
+    }
+
+    /**
+     * Write the checkpoint next to the file and move it into place, so a crash
+     * leaves either the previous or this checkpoint.
+     */
+    void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("documents", String.valueOf(documents));
+        properties.setProperty("bytes", String.valueOf(bytes));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the text of a document into the chunks that are embedded.
+ * 
+ * @author Graham Lynch
+ */
+@FunctionalInterface
+public interface Chunker {
+
+    /**
+     * Split the text.
+     * 
+     * @param text The text.
+     * @return The chunks, in order.
+     */
+    List<String> chunk(String text);
+
+    /**
+     * A chunker that embeds the whole text.
+     * 
+     * @return The chunker.
+     */
+    static Chunker none() {
+        return text -> text.isBlank() ? List.of() : List.of(text.strip());
+    }
+
+    /**
+     * A chunker that splits the text into chunks of at most {@code size}
+     * characters, preferably at whitespace, each starting {@code overlap}
+     * characters before the end of the previous one.
+     * 
+     * @param size    The maximum number of characters of a chunk.
+     * @param overlap The number of characters shared by consecutive chunks.
+     * @return The chunker.
+     */
+    static Chunker fixed(int size, int overlap) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1");
+        }
+        if (overlap < 0 || overlap >= size) {
+            throw new IllegalArgumentException("overlap must be between 0 and size - 1");
+        }
+        return text -> {
+            List<String> chunks = new ArrayList<>();
+            int length = text.length();
+            int start = 0;
+            while (start < length) {
+                int end = Math.min(length, start + size);
+                if (end < length) {
+                    int space = text.lastIndexOf(' ', end);
+                    if (space > start + size / 2) {
+                        end = space;
+                    }
+                }
+                String chunk = text.substring(start, end).strip();
+                if (!chunk.isEmpty()) {
+                    chunks.add(chunk);
+                }
+                if (end == length) {
+                    break;
+                }
+                start = Math.max(end - overlap, start + 1);
+            }
+            return chunks;
+        };
+    }
+
+}
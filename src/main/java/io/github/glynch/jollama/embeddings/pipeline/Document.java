@@ -0,0 +1,20 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import java.util.Objects;
+
+/**
+ * A document to embed.
+ * 
+ * @param id   The id of the document, written with each of its chunks.
+ * @param text The text of the document.
+ * 
+ * @author Graham Lynch
+ */
+public record Document(String id, String text) {
+
+    public Document {
+        Objects.requireNonNull(id, "id cannot be null");
+        Objects.requireNonNull(text, "text cannot be null");
+    }
+
+}
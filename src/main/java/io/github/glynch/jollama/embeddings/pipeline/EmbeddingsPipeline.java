@@ -0,0 +1,319 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import io.github.glynch.jollama.client.JOllamaClient;
+import io.github.glynch.jollama.client.JOllamaClientException;
+import io.github.glynch.jollama.support.DigestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Embeds a corpus of documents into a {@link VectorFile}.
+ *
+ * <p>
+ * Each document is split into chunks by a {@link Chunker}, and chunks
+ * identical to one already embedded are skipped. The remaining chunks are
+ * embedded in batches, with at most {@code concurrency} batches in flight, and
+ * appended to the vector file in the order of the documents.
+ * </p>
+ *
+ * <p>
+ * Every {@code checkpointEvery} documents the vector file is flushed to disk
+ * and the number of documents done is recorded in a checkpoint file next to
+ * it. A run started after a crash discards whatever was written after the last
+ * checkpoint and skips the documents before it, so the documents must be
+ * supplied in the same order.
+ * </p>
+ *
+ * <pre>
+ * EmbeddingsPipeline pipeline = EmbeddingsPipeline.builder(client, "nomic-embed-text", Path.of("corpus.vec"))
+ *         .chunker(Chunker.fixed(2000, 200))
+ *         .build();
+ * PipelineStats stats = pipeline.run(documents);
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public class EmbeddingsPipeline {
+
+    private final JOllamaClient client;
+    private final String model;
+    private final Path path;
+    private final Path checkpointPath;
+    private final Chunker chunker;
+    private final int batchSize;
+    private final int concurrency;
+    private final int checkpointEvery;
+
+    private EmbeddingsPipeline(Builder builder) {
+        this.client = builder.client;
+        this.model = builder.model;
+        this.path = builder.path;
+        this.checkpointPath = builder.path.resolveSibling(builder.path.getFileName() + ".checkpoint");
+        this.chunker = builder.chunker;
+        this.batchSize = builder.batchSize;
+        this.concurrency = builder.concurrency;
+        this.checkpointEvery = builder.checkpointEvery;
+    }
+
+    /**
+     * Create a builder of a pipeline.
+     *
+     * @param client The client used to embed the chunks.
+     * @param model  The embedding model.
+     * @param path   The path of the vector file.
+     * @return The builder.
+     */
+    public static Builder builder(JOllamaClient client, String model, Path path) {
+        return new Builder(client, model, path);
+    }
+
+    /**
+     * Get the path of the vector file.
+     *
+     * @return The path.
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Embed the documents, resuming from the last checkpoint.
+     *
+     * @param documents The documents.
+     * @return The stats of the run.
+     * @throws JOllamaClientException If a batch could not be embedded.
+     * @throws UncheckedIOException   If the vector or checkpoint file could not
+     *                                be written.
+     */
+    public PipelineStats run(Stream<Document> documents) throws JOllamaClientException {
+        Objects.requireNonNull(documents, "documents cannot be null");
+        return run(Flux.fromStream(documents)).block();
+    }
+
+    /**
+     * Embed the documents, resuming from the last checkpoint. Nothing is done
+     * until the returned mono is subscribed to.
+     *
+     * @param documents The documents.
+     * @return A mono of the stats of the run.
+     */
+    public Mono<PipelineStats> run(Flux<Document> documents) {
+        Objects.requireNonNull(documents, "documents cannot be null");
+        return Mono.using(this::open, run -> run.process(documents), Run::close);
+    }
+
+    private Run open() throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+        Run run = new Run(checkpoint, VectorFile.open(path, checkpoint.bytes()));
+        VectorFile.read(path, record -> run.seen.add(ByteBuffer.wrap(record.hash())));
+        return run;
+    }
+
+    private record Chunk(byte[] hash, int index, String text) {
+    }
+
+    private record Chunked(String id, List<Chunk> chunks, int duplicates, int total) {
+    }
+
+    /**
+     * The state of one run of the pipeline.
+     */
+    private final class Run {
+
+        private final Set<ByteBuffer> seen = new HashSet<>();
+        private final VectorFile file;
+        private final long resumed;
+        private long documents;
+        private long chunks;
+        private long duplicates;
+        private long embedded;
+
+        Run(Checkpoint checkpoint, VectorFile file) {
+            this.resumed = checkpoint.documents();
+            this.file = file;
+        }
+
+        Mono<PipelineStats> process(Flux<Document> documents) {
+            int[] pending = new int[1];
+            return documents.skip(resumed)
+                    .map(this::chunk)
+                    .bufferUntil(chunked -> {
+                        pending[0] += chunked.chunks().size();
+                        if (pending[0] >= batchSize) {
+                            pending[0] = 0;
+                            return true;
+                        }
+                        return false;
+                    })
+                    .flatMapSequential(this::embed, concurrency, 1)
+                    .doOnNext(this::write)
+                    .then(Mono.fromCallable(() -> {
+                        checkpoint();
+                        return new PipelineStats(resumed, this.documents, chunks, duplicates, embedded);
+                    }));
+        }
+
+        private Chunked chunk(Document document) {
+            List<String> texts = chunker.chunk(document.text());
+            List<Chunk> unique = new ArrayList<>(texts.size());
+            for (int i = 0; i < texts.size(); i++) {
+                byte[] hash = DigestUtils.sha256(texts.get(i).getBytes(StandardCharsets.UTF_8));
+                if (seen.add(ByteBuffer.wrap(hash))) {
+                    unique.add(new Chunk(hash, i, texts.get(i)));
+                }
+            }
+            return new Chunked(document.id(), unique, texts.size() - unique.size(), texts.size());
+        }
+
+        private Mono<Batch> embed(List<Chunked> batch) {
+            List<String> texts = batch.stream()
+                    .flatMap(chunked -> chunked.chunks().stream())
+                    .map(Chunk::text)
+                    .toList();
+            if (texts.isEmpty()) {
+                return Mono.just(new Batch(batch, new float[0][]));
+            }
+            return Mono.fromCallable(() -> new Batch(batch, client.embeddings(model, texts)
+                    .batchSize(batchSize)
+                    .concurrency(1)
+                    .get()))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        private void write(Batch batch) {
+            try {
+                int vector = 0;
+                for (Chunked chunked : batch.documents()) {
+                    for (Chunk chunk : chunked.chunks()) {
+                        file.append(chunk.hash(), chunked.id(), chunk.index(), batch.vectors()[vector++]);
+                    }
+                    documents++;
+                    chunks += chunked.total();
+                    duplicates += chunked.duplicates();
+                    embedded += chunked.chunks().size();
+                    if (documents % checkpointEvery == 0) {
+                        checkpoint();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void checkpoint() throws IOException {
+            new Checkpoint(resumed + documents, file.commit()).write(checkpointPath);
+        }
+
+        void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private record Batch(List<Chunked> documents, float[][] vectors) {
+    }
+
+    /**
+     * A builder of an {@link EmbeddingsPipeline}.
+     */
+    public static final class Builder {
+
+        private final JOllamaClient client;
+        private final String model;
+        private final Path path;
+        private Chunker chunker = Chunker.none();
+        private int batchSize = 64;
+        private int concurrency = 4;
+        private int checkpointEvery = 1000;
+
+        private Builder(JOllamaClient client, String model, Path path) {
+            this.client = Objects.requireNonNull(client, "client cannot be null");
+            this.model = Objects.requireNonNull(model, "model cannot be null");
+            this.path = Objects.requireNonNull(path, "path cannot be null");
+        }
+
+        /**
+         * Set how documents are split into chunks. Defaults to
+         * {@link Chunker#none()}.
+         *
+         * @param chunker The chunker.
+         * @return The builder.
+         */
+        public Builder chunker(Chunker chunker) {
+            this.chunker = Objects.requireNonNull(chunker, "chunker cannot be null");
+            return this;
+        }
+
+        /**
+         * Set the number of chunks embedded by each request. Defaults to
+         * {@code 64}.
+         *
+         * @param batchSize The number of chunks.
+         * @return The builder.
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Set the number of batches in flight at once. Defaults to {@code 4}.
+         *
+         * @param concurrency The number of batches.
+         * @return The builder.
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Set the number of documents between checkpoints. Defaults to
+         * {@code 1000}.
+         *
+         * @param checkpointEvery The number of documents.
+         * @return The builder.
+         */
+        public Builder checkpointEvery(int checkpointEvery) {
+            if (checkpointEvery < 1) {
+                throw new IllegalArgumentException("checkpointEvery must be at least 1");
+            }
+            this.checkpointEvery = checkpointEvery;
+            return this;
+        }
+
+        /**
+         * Build the pipeline.
+         *
+         * @return The pipeline.
+         */
+        public EmbeddingsPipeline build() {
+            return new EmbeddingsPipeline(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+/**
+ * The outcome of a run of an {@link EmbeddingsPipeline}.
+ * 
+ * @param resumedDocuments The number of documents skipped because a previous
+ *                         run had already embedded them.
+ * @param documents        The number of documents processed by this run.
+ * @param chunks           The number of chunks of those documents.
+ * @param duplicates       The number of chunks not embedded because an
+ *                         identical chunk already was.
+ * @param embedded         The number of chunks embedded and written.
+ * 
+ * @author Graham Lynch
+ */
+public record PipelineStats(
+        long resumedDocuments,
+        long documents,
+        long chunks,
+        long duplicates,
+        long embedded) {
+}
@@ -0,0 +1,156 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The append-only binary file of vectors written by an
+ * {@link EmbeddingsPipeline}.
+ * 
+ * <p>
+ * The file starts with a magic number and a version, followed by records of
+ * their length, the 32 byte sha256 of the chunk, the document id, the index of
+ * the chunk, the number of dimensions and the dimensions as big endian floats.
+ * A record cut short by a crash is ignored when reading.
+ * </p>
+ * 
+ * @author Graham Lynch
+ */
+public final class VectorFile implements Closeable {
+
+    private static final int MAGIC = 0x4A4F5646;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    private static final int HASH_SIZE = 32;
+
+    private final FileChannel channel;
+
+    private VectorFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open the file for appending after the committed records, discarding
+     * anything written after them.
+     */
+    static VectorFile open(Path path, long committed) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (committed < HEADER_SIZE) {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } else {
+                channel.truncate(committed);
+            }
+            channel.position(channel.size());
+            return new VectorFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void append(byte[] hash, String documentId, int chunk, float[] vector) throws IOException {
+        byte[] id = documentId.getBytes(StandardCharsets.UTF_8);
+        int length = HASH_SIZE + 4 + id.length + 4 + 4 + 4 * vector.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length).put(hash).putInt(id.length).put(id).putInt(chunk).putInt(vector.length);
+        buffer.asFloatBuffer().put(vector);
+        buffer.position(buffer.limit()).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Flush the records to disk.
+     * 
+     * @return The end of the last record.
+     */
+    long commit() throws IOException {
+        channel.force(false);
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read every complete record of a file.
+     * 
+     * @param path     The path of the file.
+     * @param consumer The consumer of the records.
+     * @return The end of the last complete record, or {@code 0} if the file
+     *         does not exist or is not a vector file.
+     * @throws IOException If the file could not be read.
+     */
+    public static long read(Path path, Consumer<VectorRecord> consumer) throws IOException {
+        Objects.requireNonNull(path, "path cannot be null");
+        Objects.requireNonNull(consumer, "consumer cannot be null");
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (read(channel, header) < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return 0;
+            }
+            long end = HEADER_SIZE;
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            while (read(channel, lengthBuffer.clear()) == 4) {
+                int length = lengthBuffer.getInt(0);
+                if (length < HASH_SIZE + 12 || length > channel.size() - channel.position()) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length);
+                read(channel, record);
+                record.flip();
+                byte[] hash = new byte[HASH_SIZE];
+                record.get(hash);
+                int idLength = record.getInt();
+                if (idLength < 0 || idLength > record.remaining() - 8) {
+                    break;
+                }
+                byte[] id = new byte[idLength];
+                record.get(id);
+                int chunk = record.getInt();
+                int dimensions = record.getInt();
+                if (dimensions < 0 || 4L * dimensions != record.remaining()) {
+                    break;
+                }
+                float[] vector = new float[dimensions];
+                record.asFloatBuffer().get(vector);
+                consumer.accept(new VectorRecord(hash, new String(id, StandardCharsets.UTF_8), chunk, vector));
+                end = channel.position();
+            }
+            return end;
+        }
+    }
+
+    private static int read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+}
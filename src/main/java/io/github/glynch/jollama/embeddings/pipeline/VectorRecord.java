@@ -0,0 +1,14 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+/**
+ * A record of a vector file written by an {@link EmbeddingsPipeline}.
+ * 
+ * @param hash       The sha256 of the chunk.
+ * @param documentId The id of the first document containing the chunk.
+ * @param chunk      The index of the chunk in that document.
+ * @param vector     The embedding of the chunk.
+ * 
+ * @author Graham Lynch
+ */
+public record VectorRecord(byte[] hash, String documentId, int chunk, float[] vector) {
+}
@@ -0,0 +1,368 @@
+package io.github.glynch.jollama.support;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the sha256 digests of files, so an unchanged file is not read again
+ * to compute its digest.
+ *
+ * <p>
+ * A digest is reused while the canonical path, the size, the last modified
+ * time and the file key (the inode on unix) of the file are unchanged. With a
+ * store the digests are also appended to a sidecar file, and survive the
+ * process.
+ * </p>
+ *
+ * <p>
+ * A file rewritten in place with the same size and modified time would be
+ * missed. In verification mode every cached digest that is returned is also
+ * recomputed in the background, and replaced if the file turns out to have
+ * changed. A file already waiting to be verified is not queued again.
+ * </p>
+ *
+ * <pre>
+ * DigestCache cache = DigestCache.builder().store(Path.of(".jollama-digests")).build();
+ * JOllamaClient client = JOllamaClient.builder().digestCache(cache).build();
+ * </pre>
+ *
+ * @author Graham Lynch
+ */
+public class DigestCache implements AutoCloseable {
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final Path store;
+    private final ExecutorService verifier;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final Set<Path> verifying = ConcurrentHashMap.newKeySet();
+    private int storedLines;
+
+    private DigestCache(Builder builder) throws IOException {
+        this.store = builder.store;
+        this.verifier = builder.verify ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jollama-digest-verifier");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        if (store != null && Files.exists(store)) {
+            load();
+        }
+    }
+
+    /**
+     * Create a builder of a cache.
+     *
+     * @return The builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Create a cache that is only kept in memory.
+     *
+     * @return The cache.
+     */
+    public static DigestCache inMemory() {
+        try {
+            return builder().build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the sha256 digest of the file at the path, from the cache when the
+     * file has not changed.
+     *
+     * @param path The path to the file.
+     * @return The digest in hex, prefixed with {@code sha256:}.
+     * @throws UncheckedIOException If the file could not be read.
+     */
+    public String sha256hex(Path path) {
+        Objects.requireNonNull(path, "path cannot be null");
+        try {
+            Path canonical = path.toRealPath();
+            Entry current = Entry.of(canonical, null);
+            Entry cached = entries.get(canonical);
+            if (cached != null && cached.matches(current)) {
+                hits.incrementAndGet();
+                if (verifier != null) {
+                    scheduleVerification(canonical, cached);
+                }
+                return cached.digest;
+            }
+            misses.incrementAndGet();
+            Entry computed = current.withDigest(DigestUtils.sha256hex(canonical));
+            put(canonical, computed);
+            return computed.digest;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Verify the digest in the background, unless the file is already waiting
+     * to be verified, so a file asked for repeatedly is only read once more.
+     */
+    private void scheduleVerification(Path path, Entry cached) {
+        if (!verifying.add(path)) {
+            return;
+        }
+        try {
+            verifier.execute(() -> {
+                try {
+                    verify(path, cached);
+                } finally {
+                    verifying.remove(path);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, cached digests are trusted from now on
+            verifying.remove(path);
+        }
+    }
+
+    private void verify(Path path, Entry cached) {
+        verifications.incrementAndGet();
+        try {
+            Entry current = Entry.of(path, null);
+            String digest = DigestUtils.sha256hex(path);
+            if (!digest.equals(cached.digest)) {
+                mismatches.incrementAndGet();
+                put(path, current.withDigest(digest));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // the file is gone or unreadable, it is hashed again when next asked for
+            entries.remove(path, cached);
+        }
+    }
+
+    private void put(Path path, Entry entry) {
+        entries.put(path, entry);
+        if (store != null) {
+            try {
+                append(entry);
+            } catch (IOException e) {
+                // the sidecar is best effort, the digest is still cached in memory
+            }
+        }
+    }
+
+    private synchronized void append(Entry entry) throws IOException {
+        if (storedLines > 2 * entries.size() + 16) {
+            rewrite();
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(store, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(entry.line());
+            writer.newLine();
+        }
+        storedLines++;
+    }
+
+    /**
+     * Rewrite the sidecar with only the current entries, dropping the lines
+     * of digests that were replaced.
+     */
+    private void rewrite() throws IOException {
+        Path temp = store.resolveSibling(store.getFileName() + ".tmp");
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            lines.add(entry.line());
+        }
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        storedLines = lines.size();
+    }
+
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(store, StandardCharsets.UTF_8)) {
+            Entry entry = Entry.parse(line);
+            if (entry != null) {
+                entries.put(entry.path, entry);
+                storedLines++;
+            }
+        }
+    }
+
+    /**
+     * Forget every digest, and delete the store.
+     *
+     * @throws IOException If the store could not be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        entries.clear();
+        if (store != null) {
+            Files.deleteIfExists(store);
+        }
+        storedLines = 0;
+    }
+
+    /**
+     * Get the number of digests in the cache.
+     *
+     * @return The number of digests.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of digests returned from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of digests that had to be computed.
+     *
+     * @return The number of misses.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of cached digests that verification found to be wrong.
+     *
+     * @return The number of mismatches.
+     */
+    public long mismatches() {
+        return mismatches.get();
+    }
+
+    /**
+     * Get the number of cached digests recomputed by verification.
+     *
+     * @return The number of verifications.
+     */
+    public long verifications() {
+        return verifications.get();
+    }
+
+    /**
+     * Wait for the pending verifications and stop verifying. The cache can
+     * still be used once closed, cached digests are then trusted.
+     */
+    @Override
+    public void close() {
+        if (verifier != null) {
+            verifier.shutdown();
+            try {
+                verifier.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The digest of a file and the attributes it was computed for.
+     */
+    private record Entry(Path path, long size, long modified, String fileKey, String digest) {
+
+        static Entry of(Path path, String digest) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Object fileKey = attributes.fileKey();
+            return new Entry(path, attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    fileKey != null ? fileKey.toString() : "", digest);
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split("\t", 5);
+            if (fields.length != 5) {
+                return null;
+            }
+            try {
+                return new Entry(Path.of(fields[4]), Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3],
+                        fields[0]);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        Entry withDigest(String digest) {
+            return new Entry(path, size, modified, fileKey, digest);
+        }
+
+        boolean matches(Entry other) {
+            return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+        }
+
+        String line() {
+            return digest + "\t" + size + "\t" + modified + "\t" + fileKey + "\t" + path;
+        }
+
+    }
+
+    /**
+     * A builder of a {@link DigestCache}.
+     */
+    public static final class Builder {
+
+        private Path store;
+        private boolean verify;
+
+        private Builder() {
+        }
+
+        /**
+         * Keep the digests in the sidecar file as well as in memory.
+         *
+         * @param store The path of the sidecar file.
+         * @return The builder.
+         */
+        public Builder store(Path store) {
+            this.store = Objects.requireNonNull(store, "store cannot be null");
+            return this;
+        }
+
+        /**
+         * Recompute every cached digest that is returned in the background.
+         *
+         * @return The builder.
+         */
+        public Builder verify() {
+            this.verify = true;
+            return this;
+        }
+
+        /**
+         * Build the cache, loading the sidecar file if it exists.
+         *
+         * @return The cache.
+         * @throws IOException If the sidecar file could not be read.
+         */
+        public DigestCache build() throws IOException {
+            return new DigestCache(this);
+        }
+
+    }
+
+}
@@ -1,9 +1,9 @@
 package io.github.glynch.jollama.support;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
@@ -17,6 +17,8 @@ public class DigestUtils {
 
     public static final String SHA256_PREFIX = "sha256:";
 
+    private static final int FILE_BUFFER_SIZE = 1 << 20;
+
     private DigestUtils() {
     }
 
@@ -74,31 +76,35 @@ public class DigestUtils {
     /**
      * Get the sha256 digest of the file at the path.
      * 
+     * The file is read in a single pass through a large direct buffer, so
+     * hashing a multi-GB model is bound by the disk rather than by copies
+     * through the heap.
+     * 
      * @param path The path to the file.
      * @return The digest.
      */
     public static byte[] sha256(Path path) {
         Objects.requireNonNull(path, "path cannot be null");
-        MessageDigest digest = null;
-        byte[] buffer = new byte[8192];
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-            try (BufferedInputStream bufferedInputStream = new BufferedInputStream(
-                    Files.newInputStream(path, StandardOpenOption.READ))) {
-                int size = -1;
-                while ((size = bufferedInputStream.read(buffer)) != -1) {
-                    digest.update(buffer, 0, size);
-                }
+        MessageDigest digest = messageDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) != -1) {
+                digest.update(buffer.flip());
             }
-
         } catch (IOException e) {
             throw new UncheckedIOException(e);
-        } catch (NoSuchAlgorithmException e) {
-
         }
         return digest.digest();
     }
 
+    private static MessageDigest messageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Get the sha256 digest of the file at the path in hex.
      * 
@@ -0,0 +1,83 @@
+package io.github.glynch.jollama.support;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okio.BufferedSource;
+
+/**
+ * Incremental decoder for newline delimited JSON (ndjson) streams.
+ *
+ * <p>
+ * Records are parsed straight from the bytes of the {@link BufferedSource}
+ * with a single {@link JsonParser} that is reused for the whole stream. No
+ * intermediate {@code String} is created per line.
+ * </p>
+ *
+ * <pre>
+ * try (NdJsonDecoder&lt;GenerateResponse&gt; decoder = new NdJsonDecoder&lt;&gt;(source, GenerateResponse.class,
+ *         objectMapper)) {
+ *     GenerateResponse response;
+ *     while ((response = decoder.read()) != null) {
+ *         System.out.print(response.response());
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the records.
+ *
+ * @author Graham Lynch
+ */
+public class NdJsonDecoder<T> implements Closeable {
+
+    private final JsonParser parser;
+    private final MappingIterator<T> iterator;
+
+    /**
+     * Create a decoder reading records of the type from the source.
+     *
+     * @param source       The source of the ndjson stream.
+     * @param type         The type of the records.
+     * @param objectMapper The object mapper used to bind the records.
+     * @throws IOException If the parser could not be created.
+     */
+    public NdJsonDecoder(BufferedSource source, Class<T> type, ObjectMapper objectMapper) throws IOException {
+        Objects.requireNonNull(source, "source cannot be null");
+        Objects.requireNonNull(type, "type cannot be null");
+        Objects.requireNonNull(objectMapper, "objectMapper cannot be null");
+        this.parser = objectMapper.getFactory().createParser(source.inputStream());
+        this.iterator = objectMapper.readerFor(type).readValues(parser);
+    }
+
+    /**
+     * Read the next record, blocking until it is available.
+     *
+     * @return The next record or {@code null} at the end of the stream.
+     * @throws IOException If the stream could not be read or a record could not
+     *                     be parsed.
+     */
+    public T read() throws IOException {
+        if (!iterator.hasNextValue()) {
+            return null;
+        }
+        return iterator.nextValue();
+    }
+
+    /**
+     * Close the parser and the underlying source.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            iterator.close();
+        } finally {
+            parser.close();
+        }
+    }
+
+}
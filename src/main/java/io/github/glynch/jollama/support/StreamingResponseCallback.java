@@ -1,10 +1,6 @@
 package io.github.glynch.jollama.support;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -42,15 +38,11 @@ public class StreamingResponseCallback<T> implements Callback {
             }
         }
 
-        try (InputStream inputStream = response.body().byteStream();
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        try (NdJsonDecoder<T> decoder = new NdJsonDecoder<>(response.body().source(), type, objectMapper)) {
 
-            String line;
             T data;
 
-            while ((line = reader.readLine()) != null) {
-                data = objectMapper.readValue(line, type);
+            while ((data = decoder.read()) != null) {
                 sink.next(data);
             }
 
@@ -0,0 +1,61 @@
+package io.github.glynch.jollama.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual thread support.
+ * 
+ * The library targets Java 17, so virtual threads are looked up at runtime
+ * and are only available when running on Java 21 or later.
+ */
+public class VirtualThreads {
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle lookup() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether virtual threads are supported by the running JVM.
+     * 
+     * @return {@code true} if virtual threads are supported.
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task.
+     * 
+     * @return The executor.
+     * @throws UnsupportedOperationException If virtual threads are not
+     *                                       supported by the running JVM.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later, running on " + Runtime.version());
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package io.github.glynch.jollama.version;
+
+/**
+ * Version response.
+ * 
+ * @param version The version of the Ollama server.
+ * 
+ * @author Graham Lynch
+ */
+public record VersionResponse(String version) {
+}
@@ -0,0 +1,75 @@
+package io.github.glynch.jollama.chat;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.chat.history.MessageHistory;
+import io.github.glynch.jollama.support.Image;
+
+public class TestImageAttachment {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+
+    @TempDir
+    Path directory;
+
+    private Path image(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return Files.write(directory.resolve("image-" + size + ".png"), bytes);
+    }
+
+    @Test
+    public void testImageAttachmentEncodesLikeImage() throws IOException {
+        Path path = image(100_003);
+        Message attached = Message.user("What is in this picture?", ImageAttachment.of(path));
+        Message encoded = Message.user("What is in this picture?", Image.encode(path));
+
+        assertAll(
+                () -> assertEquals(0, attached.images().size()),
+                () -> assertEquals(objectMapper.writeValueAsString(encoded), objectMapper.writeValueAsString(attached)),
+                () -> assertEquals(new String(objectMapper.writeValueAsBytes(encoded)),
+                        new String(objectMapper.writeValueAsBytes(attached))));
+    }
+
+    @Test
+    public void testImageAttachmentAfterImages() throws IOException {
+        Path path = image(5);
+        Message message = new Message(Role.USER, "Compare", List.of("YQ=="),
+                List.of(ImageAttachment.of(Files.readAllBytes(path)), ImageAttachment.of(path)));
+        String image = Image.encode(path);
+
+        assertEquals("{\"role\":\"user\",\"content\":\"Compare\",\"images\":[\"YQ==\",\"" + image + "\",\"" + image
+                + "\"]}", objectMapper.writeValueAsString(message));
+    }
+
+    @Test
+    public void testImageAttachmentInHistory() throws IOException {
+        Path path = image(64);
+        MessageHistory history = MessageHistory.create();
+        history.add(Message.user("What is in this picture?", ImageAttachment.of(path)));
+        history.add(Message.assistant("A blue sky."));
+        Files.write(path, new byte[] { 1, 2, 3 });
+
+        String json = objectMapper.writeValueAsString(new ChatRequest("llava", history.serialized(), null, null,
+                false, null));
+
+        assertEquals("{\"model\":\"llava\",\"messages\":[{\"role\":\"user\",\"content\":\"What is in this picture?\","
+                + "\"images\":[\"AQID\"]},{\"role\":\"assistant\",\"content\":\"A blue sky.\"}],\"stream\":false}",
+                json);
+    }
+
+}
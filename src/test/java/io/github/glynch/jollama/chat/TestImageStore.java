@@ -0,0 +1,134 @@
+package io.github.glynch.jollama.chat;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.chat.ImageStore.StoredImage;
+import io.github.glynch.jollama.chat.history.MessageHistory;
+import io.github.glynch.jollama.chat.history.SerializedMessages;
+import io.github.glynch.jollama.support.DigestUtils;
+
+public class TestImageStore {
+
+    private static final byte[] SKY = { 1, 2, 3, 4 };
+    private static final byte[] GRASS = { 5, 6, 7, 8, 9, 10 };
+
+    @Test
+    public void testImageStoreDeduplicates() throws IOException {
+        ImageStore store = new ImageStore();
+        StoredImage first = store.add(SKY);
+        StoredImage second = store.add("AQIDBA==");
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(SKY), first.digest()),
+                () -> assertEquals(first, second),
+                () -> assertEquals(1, store.size()),
+                () -> assertEquals(4, store.bytes()),
+                () -> assertEquals(4, second.size()));
+    }
+
+    @Test
+    public void testImageStoreRetain() {
+        ImageStore store = new ImageStore();
+        StoredImage sky = store.add(SKY);
+        StoredImage grass = store.add(GRASS);
+
+        store.retain(Set.of(grass.digest()));
+
+        assertAll(
+                () -> assertFalse(store.contains(sky.digest())),
+                () -> assertTrue(store.contains(grass.digest())),
+                () -> assertEquals(6, store.bytes()),
+                () -> assertThrows(IOException.class, sky::open));
+    }
+
+    @Test
+    public void testImageStoreEvictsLeastRecentlyUsed() throws IOException {
+        byte[] water = { 11, 12 };
+        ImageStore store = new ImageStore(10);
+        StoredImage sky = store.add(SKY);
+        StoredImage grass = store.add(GRASS);
+        sky.open().close();
+        StoredImage stored = store.add(water);
+
+        assertAll(
+                () -> assertTrue(store.contains(sky.digest())),
+                () -> assertFalse(store.contains(grass.digest())),
+                () -> assertTrue(store.contains(stored.digest())),
+                () -> assertEquals(6, store.bytes()),
+                () -> assertEquals(6, new ImageStore(1).add(GRASS).size()));
+    }
+
+    @Test
+    public void testImagePolicyStripsByIdentity() {
+        ImageStore store = new ImageStore();
+        Message first = Message.user("first", store.add(SKY));
+        Message copy = Message.user("first", store.add(SKY));
+        List<Message> messages = List.of(first, copy, Message.user("last", store.add(GRASS)));
+        ImagePolicy policy = ImagePolicy.drop(6);
+
+        List<Message> applied = policy.apply(messages);
+        List<Message> again = policy.apply(messages);
+
+        assertAll(
+                () -> assertEquals(applied.get(0), applied.get(1)),
+                () -> assertNotSame(applied.get(0), applied.get(1)),
+                () -> assertSame(applied.get(0), again.get(0)),
+                () -> assertSame(applied.get(1), again.get(1)));
+    }
+
+    @Test
+    public void testImagePolicyDropsOlderImages() {
+        ImageStore store = new ImageStore();
+        MessageHistory history = MessageHistory.create();
+        history.add(Message.user("first", store.add(GRASS)));
+        history.add(Message.assistant("a field"));
+        history.add(Message.user("second", store.add(SKY)));
+        history.add(Message.assistant("the sky"));
+        history.add(Message.user("third", store.add(SKY)));
+        ImagePolicy policy = ImagePolicy.drop(8);
+
+        List<Message> first = policy.apply(history.serialized());
+        List<Message> second = policy.apply(history.serialized());
+
+        assertAll(
+                () -> assertInstanceOf(SerializedMessages.class, first),
+                () -> assertEquals(new Message(Role.USER, "first", List.of()), first.get(0)),
+                () -> assertEquals(1, first.get(2).attachments().size()),
+                () -> assertEquals(1, first.get(4).attachments().size()),
+                () -> assertSame(first.get(0), second.get(0)),
+                () -> assertSame(history.get(1), first.get(1)));
+    }
+
+    @Test
+    public void testImagePolicyReplacesOlderImages() {
+        ImageStore store = new ImageStore();
+        List<Message> messages = List.of(
+                new Message(Role.USER, "compare", List.of("AQIDBA=="), List.of(store.add(GRASS))),
+                Message.user("and this", store.add(GRASS)));
+
+        List<Message> applied = ImagePolicy.replace(6, " [image]").apply(messages);
+
+        assertEquals(List.of(Message.user("compare [image] [image]"), messages.get(1)), applied);
+    }
+
+    @Test
+    public void testImagePolicyKeepsNewestImages() {
+        List<Message> messages = List.of(Message.user("big", "AQIDBA=="));
+
+        assertSame(messages, ImagePolicy.drop(0).apply(messages));
+    }
+
+}
@@ -0,0 +1,58 @@
+package io.github.glynch.jollama.chat.history;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.chat.Message;
+import io.github.glynch.jollama.chat.Role;
+
+public class TestConcurrentMessageHistory {
+
+    @Test
+    public void testConcurrentMessageHistorySnapshot() {
+        MessageHistory history = MessageHistory.concurrent();
+        Message user = Message.user("Why is the sky blue?");
+        history.add(user);
+
+        List<Message> snapshot = history.messages();
+        history.add(Message.assistant("Because of Rayleigh scattering."));
+        history.remove(0);
+
+        assertAll(
+                () -> assertEquals(List.of(user), snapshot),
+                () -> assertEquals(1, history.size()),
+                () -> assertEquals(Role.ASSISTANT, history.get(0).role()));
+    }
+
+    @Test
+    public void testConcurrentMessageHistoryConcurrentAdds() throws InterruptedException {
+        MessageHistory history = new ConcurrentMessageHistory();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            int thread = i;
+            executor.execute(() -> {
+                for (int j = 0; j < 500; j++) {
+                    history.add(List.of(Message.user("q" + thread + "-" + j), Message.assistant("a")));
+                    history.messages();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        List<Message> messages = history.messages();
+        assertEquals(8000, messages.size());
+        for (int i = 0; i < messages.size(); i += 2) {
+            assertEquals(Role.USER, messages.get(i).role());
+            assertEquals(Role.ASSISTANT, messages.get(i + 1).role());
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package io.github.glynch.jollama.chat.history;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.glynch.jollama.chat.Message;
+
+public class TestPersistentMessageHistoryStore {
+
+    @TempDir
+    Path directory;
+
+    private PersistentMessageHistoryStore store(int hotSessions) throws IOException {
+        return PersistentMessageHistoryStore.builder(directory)
+                .shards(2)
+                .hotSessions(hotSessions)
+                .compactionInterval(null)
+                .build();
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreReopens() throws IOException {
+        Message user = Message.user("Why is the sky blue?");
+        Message assistant = Message.assistant("Because of Rayleigh scattering.");
+        try (PersistentMessageHistoryStore store = store(2)) {
+            store.history("a").add(List.of(user, assistant));
+            store.history("b").add(user);
+            store.history("b").remove(0);
+        }
+
+        try (PersistentMessageHistoryStore store = store(2)) {
+            assertAll(
+                    () -> assertEquals(List.of(user, assistant), store.history("a").messages()),
+                    () -> assertEquals(0, store.history("b").size()),
+                    () -> assertEquals(2, store.sessions()));
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreEvictsColdSessions() throws IOException {
+        try (PersistentMessageHistoryStore store = store(2)) {
+            for (int i = 0; i < 20; i++) {
+                store.history("session-" + i).add(Message.user("question " + i));
+            }
+
+            assertAll(
+                    () -> assertTrue(store.hotSessions() <= 2),
+                    () -> assertEquals(20, store.sessions()),
+                    () -> assertEquals(Message.user("question 3"), store.history("session-3").get(0)));
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreIgnoresTornRecord() throws IOException {
+        try (PersistentMessageHistoryStore store = store(2)) {
+            store.history("a").add(Message.user("Why is the sky blue?"));
+        }
+        Path log;
+        try (var files = Files.list(directory)) {
+            log = files.filter(file -> {
+                try {
+                    return Files.size(file) > 0;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).findFirst().get();
+        }
+        Files.write(log, new byte[] { 0, 0, 0, 100, 1 }, StandardOpenOption.APPEND);
+
+        try (PersistentMessageHistoryStore store = store(2)) {
+            store.history("a").add(Message.assistant("Rayleigh scattering."));
+
+            assertEquals(2, store.history("a").size());
+        }
+        try (PersistentMessageHistoryStore store = store(2)) {
+            assertEquals(2, store.history("a").size());
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreIgnoresCorruptIdLength() throws IOException {
+        try (PersistentMessageHistoryStore store = store(2)) {
+            store.history("a").add(Message.user("Why is the sky blue?"));
+        }
+        try (var files = Files.list(directory)) {
+            for (Path log : files.toList()) {
+                Files.write(log, new byte[] { 0, 0, 0, 5, 1, (byte) 0xFF, (byte) 0xFF, 0, 0 },
+                        StandardOpenOption.APPEND);
+            }
+        }
+
+        try (PersistentMessageHistoryStore store = store(2)) {
+            assertAll(
+                    () -> assertEquals(1, store.history("a").size()),
+                    () -> assertEquals(1, store.sessions()));
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreRejectsLongSessionId() throws IOException {
+        try (PersistentMessageHistoryStore store = store(2)) {
+            assertThrows(IllegalArgumentException.class, () -> store.history("a".repeat(Short.MAX_VALUE + 1)));
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreDoesNotCacheUnknownSessions() throws IOException {
+        try (PersistentMessageHistoryStore store = store(2)) {
+            store.history("a").add(Message.user("Why is the sky blue?"));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, store.history("unknown" + i).size());
+            }
+
+            assertAll(
+                    () -> assertEquals(1, store.hotSessions()),
+                    () -> assertEquals(1, store.history("a").size()));
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreCompacts() throws IOException {
+        try (PersistentMessageHistoryStore store = store(1)) {
+            for (int i = 0; i < 10; i++) {
+                store.history("a").add(Message.user("question " + i));
+            }
+            store.history("a").clear();
+            store.history("b").add(Message.user("kept"));
+            long before = size();
+
+            store.compact();
+
+            assertAll(
+                    () -> assertTrue(size() < before),
+                    () -> assertEquals(List.of(Message.user("kept")), store.history("b").messages()),
+                    () -> assertEquals(0, store.history("a").size()));
+        }
+        try (PersistentMessageHistoryStore store = store(1)) {
+            assertEquals(List.of(Message.user("kept")), store.history("b").messages());
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreCountsClearedRemovesOnce() throws IOException {
+        try (PersistentMessageHistoryStore store = PersistentMessageHistoryStore.builder(directory)
+                .shards(1)
+                .compactionInterval(null)
+                .build()) {
+            for (int i = 0; i < 4; i++) {
+                store.history("a").add(Message.user("question " + i));
+            }
+            store.history("b").add(Message.user("removed"));
+            store.history("b").remove(0);
+            store.history("b").clear();
+            long before = size();
+
+            // 3 of the 7 records are dead, not enough to compact
+            store.compact();
+
+            assertEquals(before, size());
+        }
+    }
+
+    @Test
+    public void testPersistentMessageHistoryStoreSurvivesFailedCompaction() throws IOException {
+        try (PersistentMessageHistoryStore store = PersistentMessageHistoryStore.builder(directory)
+                .shards(1)
+                .compactionInterval(null)
+                .build()) {
+            store.history("a").add(List.of(Message.user("dead"), Message.user("dead")));
+            store.history("a").clear();
+            store.history("b").add(Message.user("kept"));
+            Path compacted = Files.createDirectory(directory.resolve("shard-0.log.compact"));
+            Files.createFile(compacted.resolve("blocker"));
+
+            assertThrows(IOException.class, store::compact);
+            store.history("b").add(Message.user("after"));
+            Files.delete(compacted.resolve("blocker"));
+            Files.delete(compacted);
+            store.compact();
+
+            assertEquals(List.of(Message.user("kept"), Message.user("after")), store.history("b").messages());
+        }
+        try (PersistentMessageHistoryStore store = PersistentMessageHistoryStore.builder(directory)
+                .shards(1)
+                .compactionInterval(null)
+                .build()) {
+            assertEquals(List.of(Message.user("kept"), Message.user("after")), store.history("b").messages());
+        }
+    }
+
+    private long size() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+}
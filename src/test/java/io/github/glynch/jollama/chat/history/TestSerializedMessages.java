@@ -0,0 +1,57 @@
+package io.github.glynch.jollama.chat.history;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.chat.ChatRequest;
+import io.github.glynch.jollama.chat.Message;
+
+public class TestSerializedMessages {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+
+    private static MessageHistory history() {
+        MessageHistory history = MessageHistory.create();
+        history.add(List.of(Message.system("Be brief."), Message.user("Why is the sky blue?"),
+                Message.assistant("Rayleigh \"scattering\".", (List<String>) null),
+                Message.user("Is it?", "aW1hZ2U=")));
+        return history;
+    }
+
+    @Test
+    public void testSerializedMessagesMatchesMessages() throws Exception {
+        MessageHistory history = history();
+        ChatRequest serialized = new ChatRequest("llama3", history.serialized(), null, null, false, null);
+        ChatRequest plain = new ChatRequest("llama3", history.messages(), null, null, false, null);
+
+        assertAll(
+                () -> assertEquals(objectMapper.writeValueAsString(plain), objectMapper.writeValueAsString(serialized)),
+                () -> assertEquals(new String(objectMapper.writeValueAsBytes(plain)),
+                        new String(objectMapper.writeValueAsBytes(serialized))),
+                () -> assertEquals(objectMapper.valueToTree(plain), objectMapper.valueToTree(serialized)));
+    }
+
+    @Test
+    public void testSerializedMessagesReusesJson() {
+        MessageHistory history = history();
+        SerializedMessages first = (SerializedMessages) history.serialized();
+        history.add(Message.assistant("Yes."));
+        SerializedMessages second = (SerializedMessages) history.serialized();
+
+        assertAll(
+                () -> assertEquals(5, second.size()),
+                () -> assertEquals(4, first.size()),
+                () -> assertSame(first.json(0), second.json(0)),
+                () -> assertSame(first.json(3), second.json(3)));
+    }
+
+}
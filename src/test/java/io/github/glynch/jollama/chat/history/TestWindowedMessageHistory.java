@@ -0,0 +1,84 @@
+package io.github.glynch.jollama.chat.history;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.chat.Message;
+
+public class TestWindowedMessageHistory {
+
+    private static final TokenEstimator WORDS = message -> message.content().split(" ").length;
+
+    @Test
+    public void testWindowedMessageHistoryKeepsSystemPinned() {
+        WindowedMessageHistory history = WindowedMessageHistory.builder().maxMessages(3).build();
+        Message system = Message.system("You are a physicist.");
+        history.add(system);
+        history.add(List.of(Message.user("q1"), Message.assistant("a1"), Message.user("q2"),
+                Message.assistant("a2")));
+
+        assertAll(
+                () -> assertEquals(3, history.size()),
+                () -> assertEquals(system, history.get(0)),
+                () -> assertEquals(Message.user("q2"), history.get(1)),
+                () -> assertEquals(Message.assistant("a2"), history.get(2)));
+    }
+
+    @Test
+    public void testWindowedMessageHistoryReplacesSystem() {
+        WindowedMessageHistory history = WindowedMessageHistory.builder().build();
+        history.add(Message.system("one"));
+        history.add(Message.user("q1"));
+        history.add(Message.system("two"));
+
+        assertEquals(List.of(Message.system("two"), Message.user("q1")), history.messages());
+    }
+
+    @Test
+    public void testWindowedMessageHistoryTrimsByTokens() {
+        WindowedMessageHistory history = WindowedMessageHistory.builder()
+                .maxTokens(6)
+                .tokenEstimator(WORDS)
+                .build();
+        history.add(Message.user("why is the sky blue"));
+        history.add(Message.assistant("rayleigh"));
+        history.add(Message.user("and mie"));
+
+        WindowStats stats = history.stats();
+        assertAll(
+                () -> assertEquals(List.of(Message.user("and mie")), history.messages()),
+                () -> assertEquals(new WindowStats(1, 2, 2, 6, 2, 6), stats));
+    }
+
+    @Test
+    public void testWindowedMessageHistoryKeepsLatestMessage() {
+        WindowedMessageHistory history = WindowedMessageHistory.builder()
+                .maxTokens(2)
+                .tokenEstimator(WORDS)
+                .build();
+        history.add(Message.user("a question that does not fit"));
+
+        assertAll(
+                () -> assertEquals(1, history.size()),
+                () -> assertEquals(6, history.tokens()),
+                () -> assertEquals(0, history.stats().trimmedMessages()));
+    }
+
+    @Test
+    public void testWindowedMessageHistoryRemoveAndClear() {
+        WindowedMessageHistory history = WindowedMessageHistory.builder().tokenEstimator(WORDS).build();
+        history.add(List.of(Message.system("be brief"), Message.user("q1"), Message.assistant("a1")));
+
+        assertEquals(Message.user("q1"), history.remove(1));
+        assertEquals(3, history.tokens());
+        history.clear();
+        assertAll(
+                () -> assertEquals(0, history.size()),
+                () -> assertEquals(0, history.tokens()));
+    }
+
+}
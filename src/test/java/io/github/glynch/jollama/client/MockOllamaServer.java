@@ -0,0 +1,80 @@
+package io.github.glynch.jollama.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal local Ollama stand-in for unit tests, backed by the JDK http
+ * server.
+ */
+public class MockOllamaServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    public MockOllamaServer() throws IOException {
+        this(0, Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-ollama");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    MockOllamaServer(int backlog, Executor executor) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), backlog);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Register a handler for the path. Every request to the server is counted.
+     */
+    public MockOllamaServer handle(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            requests.incrementAndGet();
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        return this;
+    }
+
+    public MockOllamaServer json(String path, String body) {
+        return handle(path, exchange -> respond(exchange, 200, body));
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+}
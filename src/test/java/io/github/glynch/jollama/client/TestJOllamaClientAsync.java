@@ -0,0 +1,135 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.chat.ChatResponse;
+import io.github.glynch.jollama.chat.Role;
+import io.github.glynch.jollama.chat.history.MessageHistory;
+import io.github.glynch.jollama.embeddings.EmbeddingsResponse;
+import io.github.glynch.jollama.generate.GenerateResponse;
+import reactor.core.publisher.Mono;
+
+public class TestJOllamaClientAsync {
+
+    private MockOllamaServer server;
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer()
+                .json("/api/generate", "{\"model\":\"llama3\",\"response\":\"Rayleigh scattering\",\"done\":true}")
+                .json("/api/chat", "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\","
+                        + "\"content\":\"Rayleigh scattering\"},\"done\":true}")
+                .json("/api/embeddings", "{\"embedding\":[0.5,-0.25,1.0]}")
+                .handle("/api/pull", exchange -> MockOllamaServer.respond(exchange, 404,
+                        "{\"error\":\"pull model manifest: file does not exist\"}"));
+        client = JOllamaClient.create(server.url());
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    @Test
+    void generateBatchAsync() throws Exception {
+        GenerateResponse response = client.generate("llama3", "Why is the sky blue?").batchAsync()
+                .get(5, TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertEquals("llama3", response.model()),
+                () -> assertEquals("Rayleigh scattering", response.response()));
+    }
+
+    @Test
+    void chatBatchAsyncUpdatesHistory() throws Exception {
+        MessageHistory history = MessageHistory.create();
+        ChatResponse response = client.chat("llama3", "Why is the sky blue?").history(history).batchAsync()
+                .get(5, TimeUnit.SECONDS);
+
+        assertAll(
+                () -> assertEquals("Rayleigh scattering", response.message().content()),
+                () -> assertEquals(2, history.size()),
+                () -> assertEquals(Role.ASSISTANT, history.get(1).role()));
+    }
+
+    @Test
+    void embeddingsGetAsync() throws Exception {
+        EmbeddingsResponse response = client.embeddings("nomic-embed-text", "Why is the sky blue?").getAsync()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0.5, -0.25, 1.0), response.embedding());
+    }
+
+    @Test
+    void batchAsyncCompletesExceptionally() {
+        CompletableFuture<?> future = client.pull("unknown").batchAsync();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        JOllamaClientResponseException cause = assertInstanceOf(JOllamaClientResponseException.class,
+                exception.getCause());
+        assertEquals(404, cause.getStatusCode());
+    }
+
+    @Test
+    void batchMonoIsLazy() {
+        Mono<GenerateResponse> mono = client.generate("llama3", "Why is the sky blue?").batchMono();
+
+        assertEquals(0, server.requests());
+        assertEquals("Rayleigh scattering", mono.block().response());
+        assertEquals(1, server.requests());
+    }
+
+    @Test
+    void batchAsyncFanOut() {
+        List<CompletableFuture<GenerateResponse>> futures = IntStream.range(0, 200)
+                .mapToObj(i -> client.generate("llama3", "Prompt " + i).batchAsync())
+                .toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(200, server.requests());
+    }
+
+    @Test
+    void batchAsyncLimitedPerHost() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (MockOllamaServer slow = new MockOllamaServer().handle("/api/generate", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            MockOllamaServer.respond(exchange, 200, "{\"model\":\"llama3\",\"done\":true}");
+        })) {
+            JOllamaClient limited = JOllamaClient.builder(slow.url()).maxRequestsPerHost(2).build();
+            List<CompletableFuture<GenerateResponse>> futures = IntStream.range(0, 3)
+                    .mapToObj(i -> limited.generate("llama3", "Prompt " + i).batchAsync())
+                    .toList();
+
+            ClientStats stats = limited.stats();
+            release.countDown();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+            assertAll(
+                    () -> assertEquals(2, stats.runningCalls()),
+                    () -> assertEquals(1, stats.queuedCalls()));
+        }
+    }
+
+}
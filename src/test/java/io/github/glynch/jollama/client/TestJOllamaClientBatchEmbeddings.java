@@ -0,0 +1,173 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.embeddings.Embedding;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache;
+
+public class TestJOllamaClientBatchEmbeddings {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final List<String> PROMPTS = IntStream.range(1, 11).mapToObj("x"::repeat).toList();
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private MockOllamaServer server;
+
+    @AfterEach
+    void close() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private final AtomicInteger versionFailures = new AtomicInteger();
+
+    private JOllamaClient client(String version) throws IOException {
+        server = new MockOllamaServer()
+                .handle("/api/version", exchange -> {
+                    if (versionFailures.getAndDecrement() > 0) {
+                        MockOllamaServer.respond(exchange, 503, "{\"error\":\"starting\"}");
+                    } else {
+                        MockOllamaServer.respond(exchange, 200, "{\"version\":\"" + version + "\"}");
+                    }
+                })
+                .handle("/api/embed", exchange -> {
+                    JsonNode request = objectMapper.readTree(exchange.getRequestBody().readAllBytes());
+                    String embeddings = "[" + stream(request.get("input"))
+                            .map(input -> "[" + input.asText().length() + "]")
+                            .collect(Collectors.joining(",")) + "]";
+                    MockOllamaServer.respond(exchange, 200, "{\"model\":\"nomic-embed-text\",\"embeddings\":"
+                            + embeddings + "}");
+                })
+                .handle("/api/embeddings", exchange -> {
+                    int concurrent = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(concurrent, Math::max);
+                    try {
+                        JsonNode request = objectMapper.readTree(exchange.getRequestBody().readAllBytes());
+                        Thread.sleep(10);
+                        MockOllamaServer.respond(exchange, 200,
+                                "{\"embedding\":[" + request.get("prompt").asText().length() + "]}");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                });
+        return JOllamaClient.create(server.url());
+    }
+
+    private static Stream<JsonNode> stream(JsonNode array) {
+        return IntStream.range(0, array.size()).mapToObj(array::get);
+    }
+
+    private static void assertInOrder(float[][] embeddings) {
+        assertEquals(PROMPTS.size(), embeddings.length);
+        for (int i = 0; i < embeddings.length; i++) {
+            assertArrayEquals(new float[] { i + 1 }, embeddings[i]);
+        }
+    }
+
+    @Test
+    void embedInBatches() throws Exception {
+        JOllamaClient client = client("0.3.4");
+        float[][] embeddings = client.embeddings("nomic-embed-text", PROMPTS).batchSize(3).get();
+
+        assertInOrder(embeddings);
+        // version, then four batches of at most three prompts
+        assertEquals(5, server.requests());
+    }
+
+    @Test
+    void pipelineOnOldServers() throws Exception {
+        JOllamaClient client = client("0.2.8");
+        float[][] embeddings = client.embeddings("nomic-embed-text", PROMPTS).concurrency(3).get();
+
+        // normalized like the embeddings of /api/embed
+        assertAll(
+                () -> assertTrue(Stream.of(embeddings).allMatch(embedding -> embedding[0] == 1)),
+                () -> assertEquals(PROMPTS.size() + 1, server.requests()),
+                () -> assertTrue(maxRunning.get() <= 3));
+    }
+
+    @Test
+    void versionProbedAgainAfterFailure() throws Exception {
+        versionFailures.set(1);
+        JOllamaClient client = client("0.3.4");
+        client.embeddings("nomic-embed-text", PROMPTS).get();
+        int pipelined = server.requests();
+        client.embeddings("nomic-embed-text", PROMPTS).batchSize(10).get();
+
+        assertAll(
+                () -> assertEquals(PROMPTS.size() + 1, pipelined),
+                () -> assertEquals(pipelined + 2, server.requests()));
+    }
+
+    @Test
+    void batchEmbeddingsCachedApartFromSingle() throws Exception {
+        EmbeddingsCache cache = EmbeddingsCache.inMemory(1024 * 1024);
+        JOllamaClient client = JOllamaClient.builder(client("0.3.4").getHost()).embeddingsCache(cache).build();
+        client.embeddings("nomic-embed-text", PROMPTS.get(0)).get();
+        client.embeddings("nomic-embed-text", PROMPTS.subList(0, 1)).get();
+
+        assertAll(
+                () -> assertEquals(0, cache.stats().hits()),
+                () -> assertEquals(2, cache.stats().misses()));
+    }
+
+    @Test
+    void streamInOrder() throws Exception {
+        JOllamaClient client = client("0.3.4");
+        List<Embedding> embeddings = client.embeddings("nomic-embed-text", PROMPTS).batchSize(4).concurrency(3)
+                .stream().collectList().block();
+
+        for (int i = 0; i < embeddings.size(); i++) {
+            assertEquals(i, embeddings.get(i).index());
+            assertEquals(i + 1, embeddings.get(i).vector().get(0));
+        }
+    }
+
+    @Test
+    void cachedPromptsNotSent() throws Exception {
+        EmbeddingsCache cache = EmbeddingsCache.inMemory(1024 * 1024);
+        JOllamaClient client = JOllamaClient.builder(client("0.3.4").getHost()).embeddingsCache(cache).build();
+        client.embeddings("nomic-embed-text", PROMPTS.subList(0, 5)).get();
+        float[][] embeddings = client.embeddings("nomic-embed-text", PROMPTS).batchSize(5).get();
+
+        assertAll(
+                () -> assertInOrder(embeddings),
+                () -> assertEquals(5, cache.stats().hits()),
+                () -> assertEquals(3, server.requests()));
+    }
+
+    @Test
+    void version() {
+        int[] minimum = { 0, 3, 0 };
+
+        assertAll(
+                () -> assertTrue(DefaultJOllamaClient.isAtLeast("0.3.0", minimum)),
+                () -> assertTrue(DefaultJOllamaClient.isAtLeast("0.12.1", minimum)),
+                () -> assertTrue(DefaultJOllamaClient.isAtLeast("0.3.1-rc2", minimum)),
+                () -> assertTrue(DefaultJOllamaClient.isAtLeast("0.0.0", minimum)),
+                () -> assertFalse(DefaultJOllamaClient.isAtLeast("0.2.8", minimum)),
+                () -> assertFalse(DefaultJOllamaClient.isAtLeast("dev", minimum)));
+    }
+
+}
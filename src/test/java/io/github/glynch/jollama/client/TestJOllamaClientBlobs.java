@@ -0,0 +1,141 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.glynch.jollama.modelfile.ModelFile;
+import io.github.glynch.jollama.support.DigestCache;
+import io.github.glynch.jollama.support.DigestUtils;
+
+public class TestJOllamaClientBlobs {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final List<String> rejected = new CopyOnWriteArrayList<>();
+    private MockOllamaServer server;
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer()
+                .handle("/api/blobs/", exchange -> {
+                    String digest = exchange.getRequestURI().getPath().substring("/api/blobs/".length());
+                    requests.add(exchange.getRequestMethod() + " " + digest);
+                    if (exchange.getRequestMethod().equals("HEAD")) {
+                        exchange.sendResponseHeaders(blobs.containsKey(digest) ? 200 : 404, -1);
+                    } else if (rejected.contains(digest)) {
+                        exchange.getRequestBody().readAllBytes();
+                        MockOllamaServer.respond(exchange, 500, "{\"error\":\"no space left on device\"}");
+                    } else {
+                        blobs.put(digest, exchange.getRequestBody().readAllBytes());
+                        MockOllamaServer.respond(exchange, 201, "");
+                    }
+                })
+                .json("/api/create", "{\"status\":\"success\"}");
+        client = JOllamaClient.create(server.url());
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    private Path file(String name, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return Files.write(directory.resolve(name), bytes);
+    }
+
+    @Test
+    void sha256OfFileMatchesBytes() throws IOException {
+        Path path = file("model.gguf", (1 << 20) * 3 + 17);
+
+        assertEquals(DigestUtils.sha256hex(Files.readAllBytes(path)), DigestUtils.sha256hex(path));
+    }
+
+    @Test
+    void createHashesAndChecksEachBlobOnce() throws IOException {
+        Path model = file("model.gguf", 4_000_000);
+        Path adapter = file("adapter.bin", 1000);
+        String modelDigest = DigestUtils.sha256hex(Files.readAllBytes(model));
+        String adapterDigest = DigestUtils.sha256hex(Files.readAllBytes(adapter));
+
+        client.create("mario", ModelFile.from(model).adapter(adapter).build()).batch();
+
+        assertAll(
+                () -> assertEquals(List.of("HEAD " + modelDigest, "POST " + modelDigest, "HEAD " + adapterDigest,
+                        "POST " + adapterDigest), requests),
+                () -> assertArrayEquals(Files.readAllBytes(model), blobs.get(modelDigest)));
+    }
+
+    @Test
+    void createSkipsExistingBlobs() throws IOException {
+        Path model = file("model.gguf", 1000);
+        String digest = DigestUtils.sha256hex(Files.readAllBytes(model));
+        blobs.put(digest, new byte[0]);
+
+        client.create("mario", ModelFile.from(model).build()).batch();
+
+        assertEquals(List.of("HEAD " + digest), requests);
+    }
+
+    @Test
+    void createReusesCachedDigests() throws IOException {
+        Path model = file("model.gguf", 1000);
+        DigestCache digestCache = DigestCache.inMemory();
+        JOllamaClient cached = JOllamaClient.builder(server.url()).digestCache(digestCache).build();
+
+        cached.create("mario", ModelFile.from(model).build()).batch();
+        cached.create("luigi", ModelFile.from(model).build()).batch();
+
+        assertAll(
+                () -> assertEquals(1, digestCache.misses()),
+                () -> assertEquals(1, digestCache.hits()),
+                () -> assertEquals(1, blobs.size()));
+    }
+
+    @Test
+    void createReportsUploadProgress() throws IOException {
+        Path model = file("model.gguf", 2_500_000);
+        String digest = DigestUtils.sha256hex(model);
+        List<Long> written = new CopyOnWriteArrayList<>();
+
+        int status = client.blobs().create(model, digest, (bytes, total) -> written.add(bytes));
+
+        assertAll(
+                () -> assertEquals(201, status),
+                () -> assertEquals(List.of(1L << 20, 2L << 20, 2_500_000L), written),
+                () -> assertArrayEquals(Files.readAllBytes(model), blobs.get(digest)));
+    }
+
+    @Test
+    void createFailsWhenModelBlobRejected() throws IOException {
+        Path model = file("model.gguf", 1000);
+        Path adapter = file("adapter.bin", 4_000_000);
+        rejected.add(DigestUtils.sha256hex(model));
+
+        assertThrows(JOllamaClientException.class,
+                () -> client.create("mario", ModelFile.from(model).adapter(adapter).build()).batch());
+        assertEquals(List.of("HEAD " + rejected.get(0), "POST " + rejected.get(0)), requests);
+    }
+
+}
@@ -1,11 +1,17 @@
 package io.github.glynch.jollama.client;
 
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.Duration;
 
 import org.junit.jupiter.api.Test;
 
+import io.github.glynch.jollama.support.VirtualThreads;
+import okhttp3.Dispatcher;
+
 public class TestJOllamaClientBuilder {
 
     @Test
@@ -70,4 +76,54 @@ public class TestJOllamaClientBuilder {
         assertEquals(Redirect.ALWAYS, client.getRedirect());
     }
 
+    @Test
+    void builderVirtualThreads() {
+        if (VirtualThreads.isSupported()) {
+            assertNotNull(JOllamaClient.builder().virtualThreads().build());
+        } else {
+            assertThrows(UnsupportedOperationException.class, () -> JOllamaClient.builder().virtualThreads());
+        }
+    }
+
+    @Test
+    void builderDefaultStats() {
+        ClientStats stats = JOllamaClient.builder().build().stats();
+
+        assertAll(
+                () -> assertEquals(0, stats.connections()),
+                () -> assertEquals(0, stats.runningCalls()),
+                () -> assertEquals(64, stats.maxRequests()),
+                () -> assertEquals(5, stats.maxRequestsPerHost()));
+    }
+
+    @Test
+    void builderMaxRequests() {
+        ClientStats stats = JOllamaClient.builder().maxRequests(128).maxRequestsPerHost(16)
+                .connectionPool(16, Duration.ofMinutes(1))
+                .build()
+                .stats();
+
+        assertAll(
+                () -> assertEquals(128, stats.maxRequests()),
+                () -> assertEquals(16, stats.maxRequestsPerHost()));
+    }
+
+    @Test
+    void builderSharedDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        JOllamaClient client1 = JOllamaClient.builder().dispatcher(dispatcher).maxRequestsPerHost(8).build();
+        JOllamaClient client2 = JOllamaClient.builder("http://localhost:8080").dispatcher(dispatcher).build();
+
+        assertAll(
+                () -> assertEquals(8, dispatcher.getMaxRequestsPerHost()),
+                () -> assertEquals(8, client1.stats().maxRequestsPerHost()),
+                () -> assertEquals(8, client2.stats().maxRequestsPerHost()));
+    }
+
+    @Test
+    void builderInvalidMaxRequests() {
+        assertThrows(IllegalArgumentException.class, () -> JOllamaClient.builder().maxRequests(0));
+        assertThrows(IllegalArgumentException.class, () -> JOllamaClient.builder().maxRequestsPerHost(0));
+    }
+
 }
@@ -0,0 +1,203 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.Options;
+import io.github.glynch.jollama.embeddings.EmbeddingsResponse;
+import io.github.glynch.jollama.generate.GenerateResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+public class TestJOllamaClientCoalesce {
+
+    private static final String GENERATE = "{\"model\":\"llama3\",\"response\":\"Rayleigh scattering\",\"done\":true}";
+    private static final String STREAM = "{\"model\":\"llama3\",\"response\":\"Rayleigh\",\"done\":false}\n"
+            + "{\"model\":\"llama3\",\"response\":\" scattering\",\"done\":true}\n";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger generates = new AtomicInteger();
+    private final AtomicInteger embeddings = new AtomicInteger();
+    private MockOllamaServer server;
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer()
+                .handle("/api/generate", exchange -> {
+                    generates.incrementAndGet();
+                    String body = new String(exchange.getRequestBody().readAllBytes());
+                    await();
+                    MockOllamaServer.respond(exchange, 200, body.contains("\"stream\":true") ? STREAM : GENERATE);
+                })
+                .handle("/api/embeddings", exchange -> {
+                    embeddings.incrementAndGet();
+                    await();
+                    MockOllamaServer.respond(exchange, 200, "{\"embedding\":[0.5,-0.25,1.0]}");
+                });
+        client = JOllamaClient.builder(server.url()).coalesce().build();
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitRequests(AtomicInteger requests, int count) throws InterruptedException {
+        while (requests.get() < count) {
+            Thread.sleep(5);
+        }
+    }
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        server.close();
+    }
+
+    @Test
+    void identicalBatchAsyncShareOneRequest() throws Exception {
+        Options options = Options.builder().seed(42).temperature(0f).build();
+        List<CompletableFuture<GenerateResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(client.generate("llama3", "Why is the sky blue?").options(options).batchAsync());
+        }
+        awaitRequests(generates, 1);
+        release.countDown();
+
+        for (CompletableFuture<GenerateResponse> future : futures) {
+            assertEquals("Rayleigh scattering", future.get(5, TimeUnit.SECONDS).response());
+        }
+        assertEquals(1, generates.get());
+    }
+
+    @Test
+    void optionOrderDoesNotMatter() {
+        Options first = Options.builder().seed(42).temperature(0f).build();
+        Options second = Options.builder().temperature(0f).seed(42).build();
+
+        assertEquals(SingleFlight.key("/api/generate", first), SingleFlight.key("/api/generate", second));
+    }
+
+    @Test
+    void differentRequestsAreNotCoalesced() throws Exception {
+        CompletableFuture<GenerateResponse> first = client.generate("llama3", "Why is the sky blue?").batchAsync();
+        CompletableFuture<GenerateResponse> second = client.generate("llama3", "Why is grass green?").batchAsync();
+        awaitRequests(generates, 2);
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, generates.get());
+    }
+
+    @Test
+    void identicalBlockingCallsShareOneRequest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<EmbeddingsResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> client.embeddings("nomic-embed-text", "sky").get()));
+            }
+            awaitRequests(embeddings, 1);
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<EmbeddingsResponse> future : futures) {
+                assertEquals(List.of(0.5, -0.25, 1.0), future.get(5, TimeUnit.SECONDS).embedding());
+            }
+            assertEquals(1, embeddings.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotCancelOthers() throws Exception {
+        CompletableFuture<GenerateResponse> first = client.generate("llama3", "Why is the sky blue?").batchAsync();
+        CompletableFuture<GenerateResponse> second = client.generate("llama3", "Why is the sky blue?").batchAsync();
+        awaitRequests(generates, 1);
+        first.cancel(true);
+        release.countDown();
+
+        assertAll(
+                () -> assertTrue(first.isCancelled()),
+                () -> assertEquals("Rayleigh scattering", second.get(5, TimeUnit.SECONDS).response()));
+    }
+
+    @Test
+    void identicalStreamsShareOneRequest() throws Exception {
+        Flux<GenerateResponse> first = client.generate("llama3", "Why is the sky blue?").stream();
+        Flux<GenerateResponse> second = client.generate("llama3", "Why is the sky blue?").stream();
+        CompletableFuture<List<GenerateResponse>> firstResult = first.subscribeOn(Schedulers.boundedElastic())
+                .collectList().toFuture();
+        awaitRequests(generates, 1);
+        // attaching to the stream in flight does not block
+        CompletableFuture<List<GenerateResponse>> secondResult = second.collectList().toFuture();
+        release.countDown();
+
+        assertAll(
+                () -> assertEquals(2, firstResult.get(5, TimeUnit.SECONDS).size()),
+                () -> assertEquals(2, secondResult.get(5, TimeUnit.SECONDS).size()),
+                () -> assertEquals(1, generates.get()));
+    }
+
+    @Test
+    void completedStreamIsNotReplayed() {
+        release.countDown();
+        client.generate("llama3", "Why is the sky blue?").stream().blockLast();
+        client.generate("llama3", "Why is the sky blue?").stream().blockLast();
+
+        assertEquals(2, generates.get());
+    }
+
+    @Test
+    void errorInBlockingCallReachesWaitingCallers() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.call("key", () -> {
+                started.countDown();
+                await();
+                throw new AssertionError("leader failed");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> singleFlight.call("key", () -> "follower"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertAll(
+                    () -> assertInstanceOf(AssertionError.class,
+                            assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause()),
+                    () -> assertInstanceOf(AssertionError.class,
+                            assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS))
+                                    .getCause()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.Options;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache;
+
+public class TestJOllamaClientEmbeddingsCache {
+
+    private final EmbeddingsCache cache = EmbeddingsCache.inMemory(1024 * 1024);
+    private MockOllamaServer server;
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer().json("/api/embeddings", "{\"embedding\":[0.5,-0.25,1.0]}");
+        client = JOllamaClient.builder(server.url()).embeddingsCache(cache).build();
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    @Test
+    void repeatedPromptAnsweredFromCache() throws Exception {
+        client.embeddings("nomic-embed-text", "Why is the sky blue?").get();
+        List<Double> embedding = client.embeddings("nomic-embed-text", "Why is the sky blue?").get().embedding();
+        List<Double> async = client.embeddings("nomic-embed-text", "Why is the sky blue?").getAsync()
+                .get(5, TimeUnit.SECONDS).embedding();
+
+        assertAll(
+                () -> assertEquals(List.of(0.5, -0.25, 1.0), embedding),
+                () -> assertEquals(List.of(0.5, -0.25, 1.0), async),
+                () -> assertEquals(1, server.requests()),
+                () -> assertEquals(2, cache.stats().hits()),
+                () -> assertEquals(1, cache.stats().misses()));
+    }
+
+    @Test
+    void differentOptionsMiss() {
+        client.embeddings("nomic-embed-text", "Why is the sky blue?").get();
+        client.embeddings("nomic-embed-text", "Why is the sky blue?")
+                .options(Options.builder().seed(1).build()).get();
+
+        assertEquals(2, server.requests());
+    }
+
+}
@@ -0,0 +1,200 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import io.github.glynch.jollama.chat.ChatResponse;
+import io.github.glynch.jollama.chat.Message;
+import io.github.glynch.jollama.chat.history.MessageHistory;
+import io.github.glynch.jollama.generate.GenerateResponse;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+public class TestJOllamaClientStream {
+
+    private static final String RECORD = "{\"model\":\"llama3\",\"response\":\"%d\",\"done\":%b}\n";
+    private static final String CHAT = "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"%s\"},\"done\":%b}\n";
+
+    private MockOllamaServer server;
+    private JOllamaClient client;
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer()
+                .handle("/api/generate", exchange -> {
+                    exchange.getRequestBody().readAllBytes();
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream outputStream = exchange.getResponseBody()) {
+                        for (int i = 0; i < 200; i++) {
+                            outputStream.write(String.format(RECORD, i, i == 199).getBytes(StandardCharsets.UTF_8));
+                            outputStream.flush();
+                            Thread.sleep(10);
+                        }
+                    } catch (IOException e) {
+                        disconnected.countDown();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })
+                .handle("/api/chat", exchange -> MockOllamaServer.respond(exchange, 200,
+                        String.format(CHAT, "Rayleigh", false) + String.format(CHAT, " scattering", true)))
+                .handle("/api/pull", exchange -> MockOllamaServer.respond(exchange, 404,
+                        "{\"error\":\"pull model manifest: file does not exist\"}"));
+        client = JOllamaClient.create(server.url());
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    @Test
+    void streamIsNotSentUntilSubscribed() {
+        Flux<GenerateResponse> flux = client.generate("llama3", "Why is the sky blue?").stream();
+
+        assertEquals(0, server.requests());
+
+        List<GenerateResponse> responses = flux.take(3).collectList().block();
+
+        assertEquals(3, responses.size());
+        assertEquals(1, server.requests());
+    }
+
+    @Test
+    void chatStreamUpdatesHistoryPerSubscription() {
+        MessageHistory history = MessageHistory.create();
+        Flux<ChatResponse> flux = client.chat("llama3", "Why is the sky blue?").system("Be brief").history(history)
+                .stream();
+
+        assertEquals(0, history.size());
+
+        flux.blockLast();
+        flux.blockLast();
+
+        assertEquals(List.of(Message.system("Be brief"), Message.user("Why is the sky blue?"),
+                Message.assistant("Rayleigh scattering"), Message.system("Be brief"),
+                Message.user("Why is the sky blue?"), Message.assistant("Rayleigh scattering")),
+                history.messages());
+    }
+
+    @Test
+    void streamCancelledOnTake() throws InterruptedException {
+        List<GenerateResponse> responses = client.generate("llama3", "Why is the sky blue?").stream()
+                .take(2)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("0", "1"), responses.stream().map(GenerateResponse::response).toList());
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS), "server kept streaming after cancel");
+    }
+
+    @Test
+    void streamReadsOnlyOnDemand() throws InterruptedException {
+        List<GenerateResponse> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<GenerateResponse> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(GenerateResponse value) {
+                received.add(value);
+            }
+        };
+
+        long start = System.nanoTime();
+        client.generate("llama3", "Why is the sky blue?").stream().subscribe(subscriber);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0,
+                "subscribe read the whole stream without demand");
+        assertEquals(1, received.size());
+
+        subscriber.request(2);
+        assertEquals(3, received.size());
+
+        subscriber.dispose();
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS), "server kept streaming after dispose");
+    }
+
+    @Test
+    void streamPrefetchReadsBoundedAhead() throws InterruptedException {
+        JOllamaClient prefetching = JOllamaClient.builder(server.url())
+                .prefetch(2)
+                .build();
+        List<GenerateResponse> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        BaseSubscriber<GenerateResponse> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(GenerateResponse value) {
+                received.add(value);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+            }
+        };
+
+        long start = System.nanoTime();
+        prefetching.generate("llama3", "Why is the sky blue?").stream().subscribe(subscriber);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0,
+                "subscribe read the whole stream ahead of demand");
+        assertEquals(1, received.size());
+
+        subscriber.request(10);
+        assertEquals(11, received.size());
+        assertNull(error.get());
+
+        subscriber.dispose();
+        assertTrue(disconnected.await(5, TimeUnit.SECONDS), "server kept streaming after dispose");
+    }
+
+    @Test
+    void streamPrefetchDeliversEveryRecord() {
+        JOllamaClient prefetching = JOllamaClient.builder(server.url())
+                .prefetch(2)
+                .build();
+
+        List<GenerateResponse> responses = prefetching.generate("llama3", "Why is the sky blue?").stream()
+                .collectList()
+                .block();
+
+        assertEquals(200, responses.size());
+    }
+
+    @Test
+    void streamErrorIsSignalledOnSubscribe() {
+        Flux<?> flux = client.pull("unknown").stream();
+
+        JOllamaClientResponseException exception = assertThrows(JOllamaClientResponseException.class,
+                flux::blockLast);
+        assertEquals(404, exception.getStatusCode());
+    }
+
+}
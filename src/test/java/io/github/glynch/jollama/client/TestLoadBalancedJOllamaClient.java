@@ -0,0 +1,197 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.glynch.jollama.generate.GenerateResponse;
+import io.github.glynch.jollama.modelfile.ModelFile;
+import io.github.glynch.jollama.process.ProcessModels;
+
+public class TestLoadBalancedJOllamaClient {
+
+    private static final String GENERATE = "{\"model\":\"llama3\",\"response\":\"%s\",\"done\":true}";
+    private static final String PS = "{\"models\":[{\"name\":\"%s\",\"model\":\"%s\",\"size\":1,"
+            + "\"expires_at\":\"2024-06-12T07:47:29.838719Z\",\"size_vram\":1}]}";
+
+    private static final String CHAT = "{\"model\":\"llama3\",\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"%s\"},\"done\":true}";
+    private static final String EMBEDDINGS = "{\"embedding\":[%d]}";
+    private static final String SHOW = "{\"modelfile\":\"%s\"}";
+
+    @TempDir
+    Path directory;
+
+    private final List<MockOllamaServer> servers = new ArrayList<>();
+    private final List<String> blobRequests = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            String name = "node" + i;
+            int index = i;
+            MockOllamaServer server = new MockOllamaServer()
+                    .handle("/api/generate", exchange -> {
+                        String body = new String(exchange.getRequestBody().readAllBytes());
+                        if (body.contains("\"hold\"")) {
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        MockOllamaServer.respond(exchange, 200, String.format(GENERATE, name));
+                    })
+                    .json("/api/ps", String.format(PS, name + ":latest", name + ":latest"))
+                    .json("/api/chat", String.format(CHAT, name))
+                    .json("/api/embeddings", String.format(EMBEDDINGS, index))
+                    .json("/api/show", String.format(SHOW, name))
+                    .handle("/api/blobs/", exchange -> {
+                        exchange.getRequestBody().readAllBytes();
+                        blobRequests.add(name + " " + exchange.getRequestMethod());
+                        if (exchange.getRequestMethod().equals("HEAD")) {
+                            // the held generate completes while the blob is checked
+                            release.countDown();
+                            try {
+                                Thread.sleep(200);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            exchange.sendResponseHeaders(404, -1);
+                        } else {
+                            MockOllamaServer.respond(exchange, 201, "");
+                        }
+                    })
+                    .handle("/api/create", exchange -> {
+                        exchange.getRequestBody().readAllBytes();
+                        blobRequests.add(name + " CREATE");
+                        MockOllamaServer.respond(exchange, 200, "{\"status\":\"success\"}");
+                    });
+            servers.add(server);
+        }
+        client = JOllamaClient.builder(servers.stream().map(MockOllamaServer::url).toList())
+                .maxRequestsPerHost(1)
+                .build();
+    }
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        servers.forEach(MockOllamaServer::close);
+    }
+
+    private String node(String model) {
+        return client.generate(model, "Why is the sky blue?").batch().response();
+    }
+
+    @Test
+    void hosts() {
+        assertEquals(servers.stream().map(MockOllamaServer::url).toList(), client.getHosts());
+    }
+
+    @Test
+    void sameModelRoutedToSameHost() {
+        String node = node("llama3");
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(node, node("llama3"));
+        }
+        assertEquals(node, node("llama3:latest"));
+    }
+
+    @Test
+    void modelsSpreadAcrossHosts() {
+        long nodes = IntStream.range(0, 30).mapToObj(i -> node("model" + i)).distinct().count();
+
+        assertTrue(nodes > 1);
+    }
+
+    @Test
+    void saturatedHostFallsBack() throws Exception {
+        String preferred = node("llama3");
+
+        CompletableFuture<GenerateResponse> held = client.generate("llama3", "hold").batchAsync();
+        while (client.stats().runningCalls() == 0) {
+            Thread.sleep(5);
+        }
+        String fallback = node("llama3");
+        release.countDown();
+
+        assertAll(
+                () -> assertEquals(preferred, held.get(5, TimeUnit.SECONDS).response()),
+                () -> assertNotEquals(preferred, fallback));
+    }
+
+    @Test
+    void psCombinesHosts() {
+        ProcessModels models = client.ps();
+
+        assertAll(
+                () -> assertEquals(3, models.models().size()),
+                () -> assertTrue(client.ps("node1:latest").isPresent()));
+    }
+
+    @Test
+    void chatEmbeddingsAndShowRoutedLikeGenerate() {
+        String node = node("llama3");
+
+        for (int i = 0; i < 5; i++) {
+            assertAll(
+                    () -> assertEquals(node, client.chat("llama3", "Why is the sky blue?").batch().message()
+                            .content()),
+                    () -> assertEquals(node, "node" + (int) client.embeddings("llama3", "sky").get().vector()
+                            .get(0)),
+                    () -> assertEquals(node, client.show("llama3").modelfile()));
+        }
+    }
+
+    @Test
+    void createStaysOnOneHost() throws Exception {
+        String preferred = node("mario");
+        CompletableFuture<GenerateResponse> held = client.generate("mario", "hold").batchAsync();
+        while (client.stats().runningCalls() == 0) {
+            Thread.sleep(5);
+        }
+        Path model = Files.write(directory.resolve("model.gguf"), new byte[] { 1, 2, 3 });
+
+        client.create("mario", ModelFile.from(model).build()).batch();
+        held.get(5, TimeUnit.SECONDS);
+        String host = blobRequests.get(0).split(" ")[0];
+
+        assertAll(
+                () -> assertNotEquals(preferred, host),
+                () -> assertEquals(List.of(host + " HEAD", host + " POST", host + " CREATE"), blobRequests));
+    }
+
+    @Test
+    void blobsCreatedOnEveryHost() throws Exception {
+        Path blob = Files.write(directory.resolve("adapter.bin"), new byte[] { 1, 2, 3 });
+
+        int status = client.blobs().create(blob);
+
+        assertAll(
+                () -> assertEquals(201, status),
+                () -> assertEquals(List.of("node0 HEAD", "node0 POST", "node1 HEAD", "node1 POST", "node2 HEAD",
+                        "node2 POST"), blobRequests));
+    }
+
+}
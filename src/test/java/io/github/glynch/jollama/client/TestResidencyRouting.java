@@ -0,0 +1,205 @@
+package io.github.glynch.jollama.client;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.generate.GenerateResponse;
+
+public class TestResidencyRouting {
+
+    private static final String GENERATE = "{\"model\":\"llama3\",\"response\":\"%s\",\"done\":true}";
+    private static final String PS = "{\"models\":[{\"name\":\"%s\",\"model\":\"%s\",\"size\":1,"
+            + "\"expires_at\":\"2999-01-01T00:00:00Z\",\"size_vram\":1}]}";
+    private static final String EMPTY_PS = "{\"models\":[]}";
+
+    private final List<MockOllamaServer> servers = new ArrayList<>();
+    private final List<AtomicReference<String>> ps = new ArrayList<>();
+    private final CountDownLatch polled = new CountDownLatch(3);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<AtomicInteger> polls = new ArrayList<>();
+
+    @BeforeEach
+    void init() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            String name = "node" + i;
+            AtomicReference<String> loaded = new AtomicReference<>(EMPTY_PS);
+            AtomicInteger polls = new AtomicInteger();
+            ps.add(loaded);
+            this.polls.add(polls);
+            servers.add(new MockOllamaServer()
+                    .handle("/api/generate", exchange -> {
+                        String body = new String(exchange.getRequestBody().readAllBytes());
+                        if (body.contains("\"hold\"")) {
+                            await(release);
+                        }
+                        MockOllamaServer.respond(exchange, 200, String.format(GENERATE, name));
+                    })
+                    .handle("/api/ps", exchange -> {
+                        MockOllamaServer.respond(exchange, 200, loaded.get());
+                        polls.incrementAndGet();
+                        polled.countDown();
+                    }));
+        }
+    }
+
+    @AfterEach
+    void close() {
+        release.countDown();
+        servers.forEach(MockOllamaServer::close);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for every host to be polled twice, so the first poll was applied.
+     */
+    private boolean polledTwice() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (polls.stream().anyMatch(count -> count.get() < 2)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private List<String> hosts() {
+        return servers.stream().map(MockOllamaServer::url).toList();
+    }
+
+    private static String node(JOllamaClient client, String model) {
+        return client.generate(model, "Why is the sky blue?").batch().response();
+    }
+
+    @Test
+    void residentHostPreferred() throws Exception {
+        String preferred;
+        try (JOllamaClient client = JOllamaClient.create(hosts())) {
+            preferred = node(client, "llama3");
+        }
+        int resident = preferred.equals("node0") ? 1 : 0;
+        ps.get(resident).set(String.format(PS, "llama3:latest", "llama3:latest"));
+
+        try (JOllamaClient client = JOllamaClient.builder(hosts())
+                .residencyPolling(Duration.ofMillis(20))
+                .build()) {
+            assertTrue(polledTwice());
+
+            assertAll(
+                    () -> assertEquals("node" + resident, node(client, "llama3")),
+                    () -> assertEquals("node" + resident, node(client, "llama3:latest")),
+                    () -> assertNotEquals("node" + resident, preferred));
+        }
+    }
+
+    @Test
+    void modelLoadedOnlyOnce() throws Exception {
+        try (JOllamaClient client = JOllamaClient.builder(hosts())
+                .residencyPolling(Duration.ofMinutes(1))
+                .build()) {
+            assertTrue(polled.await(5, TimeUnit.SECONDS));
+            String first = node(client, "mistral");
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(first, node(client, "mistral"));
+            }
+        }
+    }
+
+    @Test
+    void saturatedResidentHostFallsBack() throws Exception {
+        ps.get(0).set(String.format(PS, "llama3:latest", "llama3:latest"));
+
+        try (JOllamaClient client = JOllamaClient.builder(hosts())
+                .maxRequestsPerHost(1)
+                .residencyPolling(Duration.ofMillis(20))
+                .build()) {
+            assertTrue(polledTwice());
+            CompletableFuture<GenerateResponse> held = client.generate("llama3", "hold").batchAsync();
+            while (client.stats().runningCalls() == 0) {
+                Thread.sleep(5);
+            }
+            String fallback = node(client, "llama3");
+            release.countDown();
+
+            assertAll(
+                    () -> assertEquals("node0", held.get(5, TimeUnit.SECONDS).response()),
+                    () -> assertNotEquals("node0", fallback));
+        }
+    }
+
+    @Test
+    void slowHostDoesNotDelayPolling() throws Exception {
+        ps.get(2).set(String.format(PS, "llama3:latest", "llama3:latest"));
+        CountDownLatch stalled = new CountDownLatch(1);
+        List<String> hosts = new ArrayList<>();
+        try (MockOllamaServer slow = new MockOllamaServer().handle("/api/ps", exchange -> {
+            stalled.countDown();
+            await(release);
+            MockOllamaServer.respond(exchange, 200, EMPTY_PS);
+        })) {
+            hosts.add(slow.url());
+            hosts.addAll(hosts());
+            try (JOllamaClient client = JOllamaClient.builder(hosts)
+                    .residencyPolling(Duration.ofMillis(20))
+                    .build()) {
+                assertTrue(stalled.await(5, TimeUnit.SECONDS));
+                assertTrue(polledTwice());
+
+                assertAll(
+                        () -> assertEquals(1, slow.requests()),
+                        () -> assertEquals("node2", node(client, "llama3")));
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    @Test
+    void closeStopsPolling() throws Exception {
+        JOllamaClient client = JOllamaClient.builder(hosts())
+                .residencyPolling(Duration.ofMillis(10))
+                .build();
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+        client.close();
+        Thread.sleep(50);
+        int requests = servers.stream().mapToInt(MockOllamaServer::requests).sum();
+        Thread.sleep(100);
+
+        assertEquals(requests, servers.stream().mapToInt(MockOllamaServer::requests).sum());
+    }
+
+    @Test
+    void invalidInterval() {
+        JOllamaClient.Builder builder = JOllamaClient.builder(hosts());
+
+        assertAll(
+                () -> assertThrows(NullPointerException.class, () -> builder.residencyPolling(null)),
+                () -> assertThrows(IllegalArgumentException.class, () -> builder.residencyPolling(Duration.ZERO)));
+    }
+
+}
@@ -0,0 +1,117 @@
+package io.github.glynch.jollama.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.github.glynch.jollama.support.VirtualThreads;
+
+/**
+ * Compares concurrent blocking calls with platform threads and with
+ * {@link JOllamaClient.Builder#virtualThreads() virtual threads} against a
+ * local mock server that answers after a fixed latency.
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:... io.github.glynch.jollama.client.VirtualThreadsBenchmark
+ * </pre>
+ * 
+ * The virtual mode requires Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    private static final String RESPONSE = "{\"model\":\"llama3\",\"response\":\"Rayleigh scattering\",\"done\":true}";
+
+    @Param({ "platform", "virtual" })
+    public String mode;
+
+    @Param({ "10000" })
+    public int calls;
+
+    @Param({ "20" })
+    public long latencyMillis;
+
+    private MockOllamaServer server;
+    private JOllamaClient client;
+    private ExecutorService callers;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("virtual mode requires Java 21 or later");
+        }
+        ExecutorService serverExecutor = VirtualThreads.isSupported() ? VirtualThreads.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        server = new MockOllamaServer(calls, serverExecutor).handle("/api/generate", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            MockOllamaServer.respond(exchange, 200, RESPONSE);
+        });
+
+        JOllamaClient.Builder builder = JOllamaClient.builder(server.url()).readTimeout(Duration.ofMinutes(1));
+        if (virtual) {
+            builder.virtualThreads();
+            callers = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        } else {
+            callers = Executors.newCachedThreadPool();
+        }
+        client = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    public int concurrentBlockingCalls() throws Exception {
+        List<Future<String>> futures = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            futures.add(callers.submit(() -> client.generate("llama3", "Why is the sky blue?").batch().response()));
+        }
+        int completed = 0;
+        for (Future<String> future : futures) {
+            if (future.get() != null) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VirtualThreadsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,152 @@
+package io.github.glynch.jollama.client.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.github.glynch.jollama.client.UploadProgress;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Compares writing a multi-GB file from an {@link InputStream}, as uploads
+ * did before {@link FileRequestBody}, and with a {@link FileRequestBody} into
+ * a sink that discards it, so the time is spent reading the file and copying
+ * it into okio segments. The file is read once before measuring so it is
+ * served from the page cache. Run with the GC profiler to compare the
+ * allocation rate of the two bodies.
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:... io.github.glynch.jollama.client.api.FileRequestBodyBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileRequestBodyBenchmark {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    @State(Scope.Benchmark)
+    public static class Upload {
+
+        @Param({ "2147483648" })
+        public long size;
+
+        Path path;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            path = Files.createTempFile("upload", ".gguf");
+            byte[] block = new byte[1 << 20];
+            new Random(42).nextBytes(block);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                for (long written = 0; written < size;) {
+                    ByteBuffer buffer = ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - written));
+                    written += channel.write(buffer);
+                }
+            }
+            write(new InputStreamBody(path));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(path);
+        }
+
+    }
+
+    /**
+     * The upload with the buffer size of the {@link FileRequestBody}, kept
+     * apart so the input stream baseline is measured once per file size.
+     */
+    @State(Scope.Benchmark)
+    public static class BufferedUpload extends Upload {
+
+        @Param({ "65536", "1048576", "8388608" })
+        public int bufferSize;
+
+    }
+
+    /**
+     * Streams the file through {@code Okio.source(InputStream)}.
+     */
+    private static final class InputStreamBody extends RequestBody {
+
+        private final Path path;
+
+        InputStreamBody(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return Files.size(path);
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                sink.writeAll(Okio.source(inputStream));
+            }
+        }
+
+    }
+
+    private static long write(RequestBody body) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+        }
+        return body.contentLength();
+    }
+
+    @Benchmark
+    public long inputStream(Upload upload) throws IOException {
+        return write(new InputStreamBody(upload.path));
+    }
+
+    @Benchmark
+    public long fileChannel(BufferedUpload upload) throws IOException {
+        return write(new FileRequestBody(upload.path, OCTET_STREAM, upload.bufferSize, UploadProgress.none()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FileRequestBodyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
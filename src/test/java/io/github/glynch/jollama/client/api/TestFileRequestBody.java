@@ -0,0 +1,91 @@
+package io.github.glynch.jollama.client.api;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+
+public class TestFileRequestBody {
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    @TempDir
+    Path directory;
+
+    private Path file(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return Files.write(directory.resolve("model-" + size + ".gguf"), bytes);
+    }
+
+    @Test
+    void writesFileInBuffers() throws IOException {
+        Path path = file(10_000);
+        List<Long> progress = new ArrayList<>();
+        FileRequestBody body = new FileRequestBody(path, OCTET_STREAM, 4096,
+                (written, total) -> progress.add(written * 100_000 + total));
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertAll(
+                () -> assertEquals(10_000, body.contentLength()),
+                () -> assertArrayEquals(Files.readAllBytes(path), buffer.readByteArray()),
+                () -> assertEquals(List.of(4096L * 100_000 + 10_000, 8192L * 100_000 + 10_000,
+                        10_000L * 100_000 + 10_000), progress));
+    }
+
+    @Test
+    void writesAgainOnRetry() throws IOException {
+        Path path = file(3 * FileRequestBody.DEFAULT_BUFFER_SIZE + 17);
+        FileRequestBody body = new FileRequestBody(path, OCTET_STREAM);
+        Buffer first = new Buffer();
+        Buffer second = new Buffer();
+        body.writeTo(first);
+        body.writeTo(second);
+
+        assertAll(
+                () -> assertEquals(body.contentLength(), first.size()),
+                () -> assertEquals(first, second),
+                () -> assertArrayEquals(Files.readAllBytes(path), first.readByteArray()));
+    }
+
+    @Test
+    void writesEmptyFile() throws IOException {
+        FileRequestBody body = new FileRequestBody(file(0), OCTET_STREAM);
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertAll(
+                () -> assertEquals(0, body.contentLength()),
+                () -> assertEquals(0, buffer.size()));
+    }
+
+    @Test
+    void failsWhenFileChanges() throws IOException {
+        Path path = file(10_000);
+        FileRequestBody body = new FileRequestBody(path, OCTET_STREAM);
+        long length = body.contentLength();
+        Files.write(path, new byte[20_000]);
+
+        IOException e = assertThrows(IOException.class, () -> body.writeTo(new Buffer()));
+
+        assertAll(
+                () -> assertEquals(10_000, length),
+                () -> assertTrue(e.getMessage().contains("changed during upload"), e.getMessage()));
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.glynch.jollama.client.api;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.chat.ChatRequest;
+import io.github.glynch.jollama.chat.Message;
+import okhttp3.MediaType;
+import okio.Buffer;
+
+public class TestJsonRequestBody {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final MediaType APPLICATION_JSON = MediaType.parse("application/json");
+
+    private static final ChatRequest REQUEST = new ChatRequest("llama3",
+            List.of(Message.user("Why is the sky blue? ☀")), null, null, false, null);
+
+    public static class Unserializable {
+        public String getValue() {
+            throw new IllegalStateException("no value");
+        }
+    }
+
+    @Test
+    void streamsJsonIntoSink() throws IOException {
+        JsonRequestBody body = new JsonRequestBody(objectMapper, REQUEST, APPLICATION_JSON);
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        buffer.writeUtf8("\n");
+
+        assertAll(
+                () -> assertEquals(-1, body.contentLength()),
+                () -> assertEquals(objectMapper.writeValueAsString(REQUEST) + "\n", buffer.readUtf8()));
+    }
+
+    @Test
+    void knownLengthMatchesBody() throws IOException {
+        JsonRequestBody body = new JsonRequestBody(objectMapper, REQUEST, APPLICATION_JSON, true);
+        Buffer first = new Buffer();
+        Buffer second = new Buffer();
+        body.writeTo(first);
+        body.writeTo(second);
+
+        assertAll(
+                () -> assertEquals(objectMapper.writeValueAsBytes(REQUEST).length, body.contentLength()),
+                () -> assertEquals(body.contentLength(), first.size()),
+                () -> assertEquals(first, second));
+    }
+
+    @Test
+    void serializationFailureSurfaces() {
+        JsonRequestBody body = new JsonRequestBody(objectMapper, new Unserializable(), APPLICATION_JSON);
+
+        JsonMappingException exception = assertThrows(JsonMappingException.class, () -> body.writeTo(new Buffer()));
+        assertTrue(exception.getMessage().contains("no value"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package io.github.glynch.jollama.embeddings;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+public class TestVector {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void deserializeIntoFloats() throws Exception {
+        EmbeddingsResponse response = objectMapper.readValue("{\"embedding\":[0.5,-0.25,1,2.0E-3]}",
+                EmbeddingsResponse.class);
+
+        assertAll(
+                () -> assertArrayEquals(new float[] { 0.5f, -0.25f, 1f, 0.002f }, response.vector().toArray()),
+                () -> assertEquals(List.of(0.5, -0.25, 1.0, (double) 0.002f), response.embedding()));
+    }
+
+    @Test
+    void deserializeLargeVector() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 3000; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        Vector vector = objectMapper.readValue(json.append("]").toString(), Vector.class);
+
+        assertAll(
+                () -> assertEquals(3000, vector.dimensions()),
+                () -> assertEquals(2999f, vector.get(2999)));
+    }
+
+    @Test
+    void deserializeInvalid() {
+        assertThrows(MismatchedInputException.class, () -> objectMapper.readValue("[\"a\"]", Vector.class));
+    }
+
+    @Test
+    void serializeAsArray() throws Exception {
+        assertEquals("{\"embedding\":[0.5,-0.25]}",
+                objectMapper.writeValueAsString(new EmbeddingsResponse(Vector.of(0.5f, -0.25f))));
+    }
+
+    @Test
+    void similarity() {
+        Vector a = Vector.of(1f, 0f, 0f);
+        Vector b = Vector.of(1f, 1f, 0f);
+
+        assertAll(
+                () -> assertEquals(1, a.dot(b)),
+                () -> assertEquals(Math.sqrt(2), b.norm(), 1e-6),
+                () -> assertEquals(1 / Math.sqrt(2), a.cosine(b), 1e-6),
+                () -> assertEquals(1, b.normalize().norm(), 1e-6),
+                () -> assertEquals(0, a.cosine(Vector.of(0f, 0f, 0f))),
+                () -> assertThrows(IllegalArgumentException.class, () -> a.dot(Vector.of(1f))));
+    }
+
+    @Test
+    void ofCopiesValues() {
+        float[] values = new float[] { 1f, 2f };
+        Vector vector = Vector.of(values);
+        values[0] = 3f;
+
+        assertAll(
+                () -> assertEquals(1f, vector.get(0)),
+                () -> assertEquals(Vector.of(1f, 2f), vector));
+    }
+
+}
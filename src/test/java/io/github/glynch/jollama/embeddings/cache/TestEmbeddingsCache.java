@@ -0,0 +1,125 @@
+package io.github.glynch.jollama.embeddings.cache;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.glynch.jollama.Options;
+import io.github.glynch.jollama.embeddings.cache.EmbeddingsCache.Key;
+
+public class TestEmbeddingsCache {
+
+    private static final float[] EMBEDDING = new float[] { 0.5f, -0.25f, 1.0f };
+
+    @TempDir
+    Path tempDir;
+
+    private static Key key(String prompt) {
+        return Key.of("nomic-embed-text", prompt, null);
+    }
+
+    @Test
+    void hitAndMiss() {
+        EmbeddingsCache cache = EmbeddingsCache.inMemory(1024 * 1024);
+        assertNull(cache.get(key("sky")));
+        cache.put(key("sky"), EMBEDDING);
+
+        assertAll(
+                () -> assertArrayEquals(EMBEDDING, cache.get(key("sky"))),
+                () -> assertEquals(1, cache.stats().hits()),
+                () -> assertEquals(1, cache.stats().misses()),
+                () -> assertEquals(0.5, cache.stats().hitRate()));
+    }
+
+    @Test
+    void keyIncludesModelAndOptions() {
+        Options first = Options.builder().numCtx(2048).seed(1).build();
+        Options second = Options.builder().seed(1).numCtx(2048).build();
+
+        assertAll(
+                () -> assertEquals(Key.of("a", "sky", first), Key.of("a", "sky", second)),
+                () -> assertNotEquals(Key.of("a", "sky", first), Key.of("b", "sky", first)),
+                () -> assertNotEquals(Key.of("a", "sky", first), Key.of("a", "sky", null)));
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() {
+        float[] large = new float[256];
+        EmbeddingsCache cache = EmbeddingsCache.inMemory(3000);
+        cache.put(key("1"), large);
+        cache.put(key("2"), large);
+        cache.get(key("1"));
+        cache.put(key("3"), large);
+
+        assertAll(
+                () -> assertEquals(1, cache.stats().evictions()),
+                () -> assertEquals(2, cache.stats().entries()),
+                () -> assertNull(cache.get(key("2"))),
+                () -> assertArrayEquals(large, cache.get(key("1"))),
+                () -> assertArrayEquals(large, cache.get(key("3"))));
+    }
+
+    @Test
+    void persistentTierSurvivesRestart() throws Exception {
+        Path path = tempDir.resolve("embeddings.cache");
+        try (EmbeddingsCache cache = EmbeddingsCache.persistent(1024, path, 64 * 1024)) {
+            cache.put(key("sky"), EMBEDDING);
+            cache.put(key("grass"), EMBEDDING);
+        }
+
+        try (EmbeddingsCache cache = EmbeddingsCache.persistent(1024, path, 64 * 1024)) {
+            assertAll(
+                    () -> assertEquals(2, cache.stats().diskEntries()),
+                    () -> assertArrayEquals(EMBEDDING, cache.get(key("sky"))),
+                    () -> assertEquals(1, cache.stats().diskHits()),
+                    () -> assertArrayEquals(EMBEDDING, cache.get(key("sky"))),
+                    () -> assertEquals(1, cache.stats().diskHits()),
+                    () -> assertNull(cache.get(key("sea"))));
+        }
+    }
+
+    @Test
+    void fullStoreKeepsExistingEmbeddings() throws Exception {
+        Path path = tempDir.resolve("embeddings.cache");
+        try (MappedEmbeddingsStore store = MappedEmbeddingsStore.open(path, 16 + 2 * (36 + 12))) {
+            byte[] first = key("1").digest();
+            byte[] second = key("2").digest();
+            byte[] third = key("3").digest();
+            store.put(first, EMBEDDING);
+            store.put(second, EMBEDDING);
+
+            assertAll(
+                    () -> assertFalse(store.put(third, EMBEDDING)),
+                    () -> assertEquals(2, store.size()),
+                    () -> assertArrayEquals(EMBEDDING, store.get(second)),
+                    () -> assertNull(store.get(third)));
+        }
+    }
+
+    @Test
+    void reopenWithSmallerCapacity() throws Exception {
+        Path path = tempDir.resolve("embeddings.cache");
+        byte[] first = key("1").digest();
+        byte[] second = key("2").digest();
+        try (MappedEmbeddingsStore store = MappedEmbeddingsStore.open(path, 1024)) {
+            store.put(first, EMBEDDING);
+            store.put(second, EMBEDDING);
+        }
+
+        try (MappedEmbeddingsStore store = MappedEmbeddingsStore.open(path, 16 + 36 + 12 + 20)) {
+            assertAll(
+                    () -> assertEquals(1, store.size()),
+                    () -> assertArrayEquals(EMBEDDING, store.get(first)),
+                    () -> assertNull(store.get(second)));
+        }
+    }
+
+}
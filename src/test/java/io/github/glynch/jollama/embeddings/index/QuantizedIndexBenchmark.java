@@ -0,0 +1,105 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.github.glynch.jollama.embeddings.index.QuantizedIndex.Encoding;
+
+/**
+ * Compares top-k searches of a {@link FlatIndex} with a {@link QuantizedIndex}
+ * over synthetic clustered vectors. The recall@k and memory of the quantized
+ * index are printed when each trial is set up.
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:... io.github.glynch.jollama.embeddings.index.QuantizedIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuantizedIndexBenchmark {
+
+    @Param({ "100000" })
+    public int size;
+
+    @Param({ "768" })
+    public int dimensions;
+
+    @Param({ "10" })
+    public int k;
+
+    @Param({ "INT8", "BINARY" })
+    public Encoding encoding;
+
+    private FlatIndex flat;
+    private QuantizedIndex quantized;
+    private Path path;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        float[][] centers = TestVectorIndex.randomVectors(size / 100, dimensions, 1);
+        float[][] vectors = TestQuantizedIndex.clustered(centers, size, 2);
+        path = Files.createTempFile("quantized", ".f32");
+        flat = new FlatIndex(dimensions);
+        quantized = QuantizedIndex.builder(dimensions, path).encoding(encoding)
+                .oversample(encoding == Encoding.INT8 ? 4 : 20).build();
+        for (int i = 0; i < vectors.length; i++) {
+            flat.add(String.valueOf(i), vectors[i]);
+            quantized.add(String.valueOf(i), vectors[i]);
+        }
+        queries = TestQuantizedIndex.clustered(centers, 256, 3);
+        System.out.printf("%n%s recall@%d %.3f, memory %d bytes, float32 %d bytes%n", encoding, k,
+                TestQuantizedIndex.recall(flat, quantized, queries, k), quantized.memoryBytes(),
+                4L * dimensions * size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        quantized.close();
+        Files.deleteIfExists(path);
+    }
+
+    private float[] query() {
+        next = (next + 1) % queries.length;
+        return queries[next];
+    }
+
+    @Benchmark
+    public Object flatSearch() {
+        return flat.search(query(), k);
+    }
+
+    @Benchmark
+    public Object quantizedSearch() {
+        return quantized.search(query(), k);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QuantizedIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
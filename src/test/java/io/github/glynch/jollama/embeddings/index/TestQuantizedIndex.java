@@ -0,0 +1,150 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.glynch.jollama.embeddings.index.QuantizedIndex.Encoding;
+
+public class TestQuantizedIndex {
+
+    private static final int DIMENSIONS = 64;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * The fraction of the exact top k found by the index.
+     */
+    static double recall(VectorIndex exact, VectorIndex index, float[][] queries, int k) {
+        int found = 0;
+        int expected = 0;
+        for (float[] query : queries) {
+            Set<String> ids = exact.search(query, k).stream().map(SearchResult::id).collect(Collectors.toSet());
+            Set<String> approximate = new HashSet<>(index.search(query, k).stream().map(SearchResult::id).toList());
+            approximate.retainAll(ids);
+            found += approximate.size();
+            expected += ids.size();
+        }
+        return (double) found / expected;
+    }
+
+    /**
+     * Vectors around random topics, closer to real embeddings than gaussian
+     * noise.
+     */
+    static float[][] clustered(float[][] centers, int count, long seed) {
+        float[][] noise = TestVectorIndex.randomVectors(count, centers[0].length, seed);
+        for (int i = 0; i < count; i++) {
+            float[] center = centers[i % centers.length];
+            for (int j = 0; j < center.length; j++) {
+                noise[i][j] = center[j] + 0.5f * noise[i][j];
+            }
+        }
+        return noise;
+    }
+
+    private static <T extends VectorIndex> T fill(T index, float[][] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(String.valueOf(i), vectors[i]);
+        }
+        return index;
+    }
+
+    @Test
+    void quantizeRoundTrip() {
+        float[] vector = TestVectorIndex.randomVectors(1, DIMENSIONS, 1)[0];
+        QuantizedVector quantized = ScalarQuantizer.quantize(vector);
+        float[] restored = ScalarQuantizer.dequantize(quantized);
+
+        for (int i = 0; i < vector.length; i++) {
+            assertEquals(vector[i], restored[i], quantized.scale() / 2 + 1e-6);
+        }
+    }
+
+    @Test
+    void binarize() {
+        long[] bits = ScalarQuantizer.binarize(new float[] { 1, -1, 0.5f, -0.5f });
+
+        assertAll(
+                () -> assertEquals(0b0101, bits[0]),
+                () -> assertEquals(2, ScalarQuantizer.hamming(bits, ScalarQuantizer.binarize(new float[4]))));
+    }
+
+    @Test
+    void int8Recall() throws Exception {
+        float[][] vectors = TestVectorIndex.randomVectors(5_000, DIMENSIONS, 2);
+        float[][] queries = TestVectorIndex.randomVectors(50, DIMENSIONS, 3);
+        VectorIndex exact = fill(new FlatIndex(DIMENSIONS), vectors);
+        try (QuantizedIndex index = fill(QuantizedIndex.builder(DIMENSIONS, tempDir.resolve("int8.f32")).build(),
+                vectors)) {
+            double recall = recall(exact, index, queries, 10);
+
+            assertAll(
+                    () -> assertTrue(recall > 0.95, "recall " + recall),
+                    () -> assertTrue(4.0 * DIMENSIONS * vectors.length / index.memoryBytes() > 3.5));
+        }
+    }
+
+    @Test
+    void binaryRecall() throws Exception {
+        // sign bits only separate topics, the re-ranking orders the matches within a topic
+        int dimensions = 512;
+        float[][] centers = TestVectorIndex.randomVectors(100, dimensions, 4);
+        float[][] vectors = clustered(centers, 5_000, 5);
+        float[][] queries = clustered(centers, 50, 6);
+        VectorIndex exact = fill(new FlatIndex(dimensions), vectors);
+        try (QuantizedIndex index = fill(QuantizedIndex.builder(dimensions, tempDir.resolve("binary.f32"))
+                .encoding(Encoding.BINARY).oversample(20).build(), vectors)) {
+            double recall = recall(exact, index, queries, 10);
+
+            assertAll(
+                    () -> assertTrue(recall > 0.8, "recall " + recall),
+                    () -> assertEquals(64L * vectors.length, index.memoryBytes()));
+        }
+    }
+
+    @Test
+    void scoresAreFullPrecision() throws Exception {
+        try (QuantizedIndex index = QuantizedIndex.builder(2, tempDir.resolve("small.f32")).build()) {
+            index.add("x", new float[] { 2, 0 });
+            index.add("xy", new float[] { 1, 1 });
+            var results = index.search(new float[] { 3, 0 }, 2);
+
+            assertAll(
+                    () -> assertEquals("x", results.get(0).id()),
+                    () -> assertEquals(1, results.get(0).score(), 1e-6),
+                    () -> assertEquals(1 / Math.sqrt(2), results.get(1).score(), 1e-6));
+        }
+    }
+
+    @Test
+    void mappedFileGrowsWithRows() throws Exception {
+        Path path = tempDir.resolve("grow.f32");
+        try (MappedVectorFile file = new MappedVectorFile(path, 2, 2500L * 2 * Float.BYTES)) {
+            file.put(0, new float[] { 1, 0 });
+            long small = Files.size(path);
+            for (int i = 1; i < 3000; i++) {
+                file.put(i, new float[] { i, 1 });
+            }
+
+            assertAll(
+                    () -> assertEquals(1024L * 2 * Float.BYTES, small),
+                    () -> assertEquals(1, file.dot(0, new float[] { 1, 0 }), 1e-6),
+                    () -> assertEquals(1025, file.dot(1024, new float[] { 1, 1 }), 1e-6),
+                    () -> assertEquals(2500, file.dot(2500, new float[] { 1, 0 }), 1e-6),
+                    () -> assertEquals(2999, file.dot(2999, new float[] { 1, 0 }), 1e-6),
+                    () -> assertEquals(3524L * 2 * Float.BYTES, Files.size(path)));
+        }
+    }
+
+}
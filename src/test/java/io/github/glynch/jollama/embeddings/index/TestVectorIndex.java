@@ -0,0 +1,147 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.glynch.jollama.embeddings.Vector;
+
+public class TestVectorIndex {
+
+    private static final int DIMENSIONS = 32;
+
+    static float[][] randomVectors(int count, int dimensions, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][dimensions];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static VectorIndex fill(VectorIndex index, float[][] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(String.valueOf(i), vectors[i]);
+        }
+        return index;
+    }
+
+    private static String bruteForce(float[][] vectors, float[] query) {
+        Vector q = Vector.of(query);
+        int best = 0;
+        double bestScore = -2;
+        for (int i = 0; i < vectors.length; i++) {
+            double score = Vector.of(vectors[i]).cosine(q);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return String.valueOf(best);
+    }
+
+    @Test
+    void flatIndexIsExact() {
+        float[][] vectors = randomVectors(20_000, DIMENSIONS, 1);
+        VectorIndex index = fill(new FlatIndex(DIMENSIONS), vectors);
+
+        for (float[] query : randomVectors(20, DIMENSIONS, 2)) {
+            List<SearchResult> results = index.search(query, 10);
+            assertEquals(10, results.size());
+            assertEquals(bruteForce(vectors, query), results.get(0).id());
+            for (int i = 1; i < results.size(); i++) {
+                assertTrue(results.get(i - 1).score() >= results.get(i).score());
+            }
+        }
+    }
+
+    @Test
+    void scoreIsCosineSimilarity() {
+        VectorIndex index = new FlatIndex(2);
+        index.add("x", new float[] { 2, 0 });
+        index.add("xy", new float[] { 1, 1 });
+        List<SearchResult> results = index.search(new float[] { 3, 0 }, 5);
+
+        assertAll(
+                () -> assertEquals(2, results.size()),
+                () -> assertEquals("x", results.get(0).id()),
+                () -> assertEquals(1, results.get(0).score(), 1e-6),
+                () -> assertEquals(1 / Math.sqrt(2), results.get(1).score(), 1e-6));
+    }
+
+    @Test
+    void hnswRecall() {
+        float[][] vectors = randomVectors(5_000, DIMENSIONS, 3);
+        VectorIndex flat = fill(new FlatIndex(DIMENSIONS), vectors);
+        VectorIndex hnsw = fill(HnswIndex.builder(DIMENSIONS).efSearch(100).build(), vectors);
+
+        int found = 0;
+        int expected = 0;
+        for (float[] query : randomVectors(50, DIMENSIONS, 4)) {
+            Set<String> exact = flat.search(query, 10).stream().map(SearchResult::id).collect(Collectors.toSet());
+            Set<String> approximate = new HashSet<>(hnsw.search(query, 10).stream().map(SearchResult::id).toList());
+            approximate.retainAll(exact);
+            found += approximate.size();
+            expected += exact.size();
+        }
+
+        assertTrue((double) found / expected > 0.9, "recall " + (double) found / expected);
+    }
+
+    @Test
+    void hnswFindsExactMatch() {
+        float[][] vectors = randomVectors(2_000, DIMENSIONS, 5);
+        VectorIndex index = fill(new HnswIndex(DIMENSIONS), vectors);
+
+        for (int i = 0; i < vectors.length; i += 97) {
+            assertEquals(String.valueOf(i), index.search(vectors[i], 1).get(0).id());
+        }
+    }
+
+    @Test
+    void emptyIndex() {
+        assertAll(
+                () -> assertEquals(List.of(), new FlatIndex(DIMENSIONS).search(new float[DIMENSIONS], 3)),
+                () -> assertEquals(List.of(), new HnswIndex(DIMENSIONS).search(new float[DIMENSIONS], 3)));
+    }
+
+    @Test
+    void dimensionsMustMatch() {
+        VectorIndex flat = new FlatIndex(DIMENSIONS);
+        VectorIndex hnsw = new HnswIndex(DIMENSIONS);
+
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> flat.add("a", new float[3])),
+                () -> assertThrows(IllegalArgumentException.class, () -> hnsw.search(new float[3], 1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> flat.search(new float[DIMENSIONS], 0)));
+    }
+
+    @Test
+    public void testOffHeapVectorsAcrossSegments() {
+        OffHeapVectors vectors = new OffHeapVectors(2, 2500L * 2 * Float.BYTES);
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(i, vectors.add(vectors.normalize(new float[] { i, 1 })));
+        }
+        float[] query = vectors.normalize(new float[] { 1, 0 });
+
+        assertAll(
+                () -> assertEquals(3000, vectors.size()),
+                () -> assertEquals(0, vectors.dot(0, query), 1e-6),
+                () -> assertEquals(2499 / Math.sqrt(2499.0 * 2499 + 1), vectors.dot(2499, query), 1e-6),
+                () -> assertEquals(2500 / Math.sqrt(2500.0 * 2500 + 1), vectors.dot(2500, query), 1e-6),
+                () -> assertEquals(1, vectors.dot(2999, 2999), 1e-6),
+                () -> assertEquals(vectors.dot(1024, 2999), vectors.dot(2999, 1024), 1e-6));
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.github.glynch.jollama.embeddings.index;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares top-k searches of a {@link FlatIndex} and a {@link HnswIndex} over
+ * synthetic gaussian vectors.
+ * 
+ * <pre>
+ * java -cp target/test-classes:target/classes:... io.github.glynch.jollama.embeddings.index.VectorIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorIndexBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int size;
+
+    @Param({ "768" })
+    public int dimensions;
+
+    @Param({ "10" })
+    public int k;
+
+    private FlatIndex flat;
+    private HnswIndex hnsw;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        float[][] vectors = TestVectorIndex.randomVectors(size, dimensions, 1);
+        flat = new FlatIndex(dimensions);
+        hnsw = HnswIndex.builder(dimensions).efConstruction(100).build();
+        for (int i = 0; i < vectors.length; i++) {
+            flat.add(String.valueOf(i), vectors[i]);
+            hnsw.add(String.valueOf(i), vectors[i]);
+        }
+        queries = TestVectorIndex.randomVectors(256, dimensions, 2);
+    }
+
+    private float[] query() {
+        next = (next + 1) % queries.length;
+        return queries[next];
+    }
+
+    @Benchmark
+    public Object flatSearch() {
+        return flat.search(query(), k);
+    }
+
+    @Benchmark
+    public Object hnswSearch() {
+        return hnsw.search(query(), k);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VectorIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
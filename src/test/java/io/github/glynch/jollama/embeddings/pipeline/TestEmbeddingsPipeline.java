@@ -0,0 +1,177 @@
+package io.github.glynch.jollama.embeddings.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.glynch.jollama.client.JOllamaClient;
+import io.github.glynch.jollama.client.JOllamaClientException;
+import io.github.glynch.jollama.client.MockOllamaServer;
+
+public class TestEmbeddingsPipeline {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private final List<String> inputs = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failAt = -1;
+    private MockOllamaServer server;
+    private JOllamaClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        server = new MockOllamaServer()
+                .json("/api/version", "{\"version\":\"0.3.0\"}")
+                .handle("/api/embed", exchange -> {
+                    JsonNode request = objectMapper.readTree(exchange.getRequestBody().readAllBytes());
+                    if (requests.incrementAndGet() == failAt) {
+                        MockOllamaServer.respond(exchange, 500, "{\"error\":\"model crashed\"}");
+                        return;
+                    }
+                    List<String> texts = StreamSupport.stream(request.get("input").spliterator(), false)
+                            .map(JsonNode::asText)
+                            .toList();
+                    inputs.addAll(texts);
+                    String embeddings = texts.stream()
+                            .map(text -> "[" + text.length() + "," + (int) text.charAt(0) + "]")
+                            .collect(Collectors.joining(",", "[", "]"));
+                    MockOllamaServer.respond(exchange, 200,
+                            "{\"model\":\"nomic-embed-text\",\"embeddings\":" + embeddings + "}");
+                });
+        client = JOllamaClient.create(server.url());
+    }
+
+    @AfterEach
+    void close() {
+        client.close();
+        server.close();
+    }
+
+    private static Stream<Document> documents(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Document("doc-" + i, i + "a " + i + "b"));
+    }
+
+    private static List<VectorRecord> records(Path path) throws IOException {
+        List<VectorRecord> records = new ArrayList<>();
+        VectorFile.read(path, records::add);
+        return records;
+    }
+
+    @Test
+    public void testChunkerFixedOverlaps() {
+        List<String> chunks = Chunker.fixed(10, 4).chunk("the quick brown fox jumps over");
+
+        assertEquals(List.of("the quick", "uick brown", "rown fox", "fox jumps", "umps over"), chunks);
+    }
+
+    @Test
+    public void testEmbeddingsPipelineEmbedsChunksInDocumentOrder() throws IOException {
+        Path path = directory.resolve("corpus.vec");
+        EmbeddingsPipeline pipeline = EmbeddingsPipeline.builder(client, "nomic-embed-text", path)
+                .chunker(text -> List.of(text.split(" ")))
+                .batchSize(3)
+                .concurrency(4)
+                .build();
+
+        PipelineStats stats = pipeline.run(documents(10));
+        List<VectorRecord> records = records(path);
+
+        assertAll(
+                () -> assertEquals(new PipelineStats(0, 10, 20, 0, 20), stats),
+                () -> assertEquals(20, records.size()),
+                () -> assertEquals("doc-0", records.get(0).documentId()),
+                () -> assertEquals(1, records.get(1).chunk()),
+                () -> assertEquals("doc-9", records.get(19).documentId()),
+                () -> assertEquals(2, records.get(19).vector()[0]),
+                () -> assertEquals('9', records.get(19).vector()[1]));
+    }
+
+    @Test
+    public void testEmbeddingsPipelineEmbedsDuplicateChunksOnce() throws IOException {
+        Path path = directory.resolve("corpus.vec");
+        EmbeddingsPipeline pipeline = EmbeddingsPipeline.builder(client, "nomic-embed-text", path)
+                .chunker(text -> List.of(text.split(" ")))
+                .build();
+
+        PipelineStats stats = pipeline.run(Stream.of(
+                new Document("a", "sky blue sky"),
+                new Document("b", "blue grass")));
+
+        assertAll(
+                () -> assertEquals(new PipelineStats(0, 2, 5, 2, 3), stats),
+                () -> assertEquals(List.of("sky", "blue", "grass"), inputs),
+                () -> assertEquals(3, records(path).size()));
+    }
+
+    @Test
+    public void testEmbeddingsPipelineResumesFromCheckpoint() throws IOException {
+        Path path = directory.resolve("corpus.vec");
+        EmbeddingsPipeline pipeline = EmbeddingsPipeline.builder(client, "nomic-embed-text", path)
+                .chunker(text -> List.of(text.split(" ")))
+                .batchSize(2)
+                .concurrency(1)
+                .checkpointEvery(2)
+                .build();
+        failAt = 4;
+
+        assertThrows(JOllamaClientException.class, () -> pipeline.run(documents(10)));
+        inputs.clear();
+        failAt = -1;
+        PipelineStats stats = pipeline.run(documents(10));
+        List<VectorRecord> records = records(path);
+
+        assertAll(
+                () -> assertEquals(new PipelineStats(2, 8, 16, 0, 16), stats),
+                () -> assertEquals("2a", inputs.get(0)),
+                () -> assertEquals(20, records.size()),
+                () -> assertEquals(20, records.stream().map(record -> record.documentId() + record.chunk())
+                        .distinct().count()));
+    }
+
+    @Test
+    public void testVectorFileStopsAtCorruptRecord() throws IOException {
+        Path path = directory.resolve("corpus.vec");
+        long end;
+        try (VectorFile file = VectorFile.open(path, 0)) {
+            file.append(new byte[32], "doc-0", 0, new float[] { 1, 2 });
+            end = file.commit();
+            // a record whose id length and dimensions do not fit its length
+            file.append(new byte[32], "doc-1", 0, new float[] { 3, 4 });
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, -1), end + 4 + 32);
+        }
+        List<VectorRecord> records = new ArrayList<>();
+
+        assertAll(
+                () -> assertEquals(end, VectorFile.read(path, records::add)),
+                () -> assertEquals(1, records.size()),
+                () -> assertEquals("doc-0", records.get(0).documentId()));
+    }
+
+}
@@ -0,0 +1,130 @@
+package io.github.glynch.jollama.support;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestDigestCache {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testDigestCacheHitsUnchangedFile() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        DigestCache cache = DigestCache.inMemory();
+
+        String first = cache.sha256hex(path);
+        String second = cache.sha256hex(directory.resolve(".").resolve("model.gguf"));
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(path), first),
+                () -> assertEquals(first, second),
+                () -> assertEquals(1, cache.misses()),
+                () -> assertEquals(1, cache.hits()));
+    }
+
+    @Test
+    public void testDigestCacheReturnsDigestWhenStoreFails() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        Path store = directory.resolve("digests");
+        DigestCache cache = DigestCache.builder().store(store).build();
+        Files.deleteIfExists(store);
+        Files.createDirectory(store);
+
+        String digest = cache.sha256hex(path);
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(path), digest),
+                () -> assertEquals(digest, cache.sha256hex(path)),
+                () -> assertEquals(1, cache.hits()));
+    }
+
+    @Test
+    public void testDigestCacheMissesChangedFile() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        DigestCache cache = DigestCache.inMemory();
+        cache.sha256hex(path);
+
+        Files.writeString(path, "new weights");
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(path), cache.sha256hex(path)),
+                () -> assertEquals(2, cache.misses()));
+    }
+
+    @Test
+    public void testDigestCacheStore() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        Path store = directory.resolve("digests");
+        DigestCache.builder().store(store).build().sha256hex(path);
+
+        DigestCache reopened = DigestCache.builder().store(store).build();
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(path), reopened.sha256hex(path)),
+                () -> assertEquals(0, reopened.misses()),
+                () -> assertEquals(1, reopened.size()));
+    }
+
+    @Test
+    public void testDigestCacheVerify() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        FileTime modified = Files.getLastModifiedTime(path);
+        String stale;
+        try (DigestCache cache = DigestCache.builder().verify().build()) {
+            cache.sha256hex(path);
+            Files.writeString(path, "WEIGHTS");
+            Files.setLastModifiedTime(path, modified);
+
+            stale = cache.sha256hex(path);
+            cache.close();
+
+            assertAll(
+                    () -> assertEquals(DigestUtils.sha256hex("weights".getBytes()), stale),
+                    () -> assertEquals(1, cache.mismatches()),
+                    () -> assertEquals(DigestUtils.sha256hex(path), cache.sha256hex(path)));
+        }
+    }
+
+    @Test
+    public void testDigestCacheVerifiesPendingFileOnce() throws IOException {
+        byte[] bytes = new byte[64 * 1024 * 1024];
+        new Random(42).nextBytes(bytes);
+        Path path = Files.write(directory.resolve("model.gguf"), bytes);
+        DigestCache cache = DigestCache.builder().verify().build();
+        cache.sha256hex(path);
+
+        for (int i = 0; i < 5; i++) {
+            cache.sha256hex(path);
+        }
+        cache.close();
+
+        assertAll(
+                () -> assertEquals(5, cache.hits()),
+                () -> assertTrue(cache.verifications() < 5),
+                () -> assertEquals(0, cache.mismatches()));
+    }
+
+    @Test
+    public void testDigestCacheTrustsDigestsOnceClosed() throws IOException {
+        Path path = Files.writeString(directory.resolve("model.gguf"), "weights");
+        DigestCache cache = DigestCache.builder().verify().build();
+        cache.sha256hex(path);
+        cache.close();
+
+        assertAll(
+                () -> assertEquals(DigestUtils.sha256hex(path), cache.sha256hex(path)),
+                () -> assertEquals(0, cache.verifications()));
+    }
+
+}
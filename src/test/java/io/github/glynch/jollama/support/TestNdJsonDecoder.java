@@ -0,0 +1,151 @@
+package io.github.glynch.jollama.support;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.github.glynch.jollama.chat.ChatResponse;
+import io.github.glynch.jollama.chat.Role;
+import okio.Buffer;
+
+public class TestNdJsonDecoder {
+
+    private static final String RECORD = "{\"model\":\"llama3\",\"created_at\":\"2024-06-12T07:47:29.838719Z\","
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"token %d\"},\"done\":false}\n";
+    private static final String LAST = "{\"model\":\"llama3\",\"created_at\":\"2024-06-12T07:47:29.838719Z\","
+            + "\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done_reason\":\"stop\",\"done\":true,"
+            + "\"total_duration\":7032225625,\"eval_count\":378}\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static Buffer ndjson(int records) {
+        Buffer buffer = new Buffer();
+        for (int i = 0; i < records; i++) {
+            buffer.writeUtf8(String.format(RECORD, i));
+        }
+        buffer.writeUtf8(LAST);
+        return buffer;
+    }
+
+    @Test
+    public void testDecodeRecords() throws IOException {
+        List<ChatResponse> responses = new ArrayList<>();
+        try (NdJsonDecoder<ChatResponse> decoder = new NdJsonDecoder<>(ndjson(3), ChatResponse.class,
+                objectMapper)) {
+            ChatResponse response;
+            while ((response = decoder.read()) != null) {
+                responses.add(response);
+            }
+        }
+
+        assertAll(
+                () -> assertEquals(4, responses.size()),
+                () -> assertEquals("token 0", responses.get(0).message().content()),
+                () -> assertEquals(Role.ASSISTANT, responses.get(2).message().role()),
+                () -> assertEquals("token 2", responses.get(2).message().content()),
+                () -> assertTrue(responses.get(3).done()),
+                () -> assertEquals("stop", responses.get(3).doneReason()),
+                () -> assertEquals(378L, responses.get(3).evalCount()));
+    }
+
+    @Test
+    public void testDecodeEmptyStream() throws IOException {
+        try (NdJsonDecoder<ChatResponse> decoder = new NdJsonDecoder<>(new Buffer(), ChatResponse.class,
+                objectMapper)) {
+            assertNull(decoder.read());
+        }
+    }
+
+    @Test
+    public void testDecodeBlankLines() throws IOException {
+        Buffer buffer = new Buffer().writeUtf8("\n" + String.format(RECORD, 1) + "\r\n\n" + LAST);
+        int count = 0;
+        try (NdJsonDecoder<ChatResponse> decoder = new NdJsonDecoder<>(buffer, ChatResponse.class,
+                objectMapper)) {
+            while (decoder.read() != null) {
+                count++;
+            }
+        }
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testDecodeMalformedRecord() throws IOException {
+        Buffer buffer = new Buffer().writeUtf8(String.format(RECORD, 1) + "{\"model\":\n");
+        try (NdJsonDecoder<ChatResponse> decoder = new NdJsonDecoder<>(buffer, ChatResponse.class,
+                objectMapper)) {
+            decoder.read();
+            assertThrows(IOException.class, decoder::read);
+        }
+    }
+
+    @Test
+    public void testDecodeAllocatesLessThanLineReader() throws IOException {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        int records = 20_000;
+        long threadId = Thread.currentThread().getId();
+
+        // warm up both paths so that allocation is measured on compiled code
+        for (int i = 0; i < 5; i++) {
+            decodeLines(ndjson(records));
+            decode(ndjson(records));
+        }
+
+        Buffer lines = ndjson(records);
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        assertEquals(records + 1, decodeLines(lines));
+        long lineAllocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        Buffer bytes = ndjson(records);
+        before = threadMXBean.getThreadAllocatedBytes(threadId);
+        assertEquals(records + 1, decode(bytes));
+        long decoderAllocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(decoderAllocated < lineAllocated * 0.9,
+                "decoder allocated " + decoderAllocated + " bytes, line reader allocated " + lineAllocated);
+    }
+
+    private int decode(Buffer buffer) throws IOException {
+        int count = 0;
+        try (NdJsonDecoder<ChatResponse> decoder = new NdJsonDecoder<>(buffer, ChatResponse.class,
+                objectMapper)) {
+            while (decoder.read() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int decodeLines(Buffer buffer) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(buffer.inputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                objectMapper.readValue(line, ChatResponse.class);
+                count++;
+            }
+        }
+        return count;
+    }
+
+}